@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * Abstract implementation of DNSObject to define some common functionality
  * that will be present in all implementations.
@@ -7,27 +9,128 @@
  */
 public abstract class AbstractDNSObject implements DNSObject {
     /** 
-     * wether this DNSObject has been changed, if it has, serialized and
-     * values will have to be re-generated
+     * wether this DNSObject has been changed since serialized was last
+     * generated
+     */
+    protected boolean              serializedChanged;
+    /** 
+     * wether this DNSObject has been changed since values was last
+     * generated
      */
-    protected boolean              changed;
+    protected boolean              valuesChanged;
     /**
      * Byte-version of this object in DNS format
      */
     protected byte[]               serialized;
     /**
-     * A Map of the state of this DNSObject
+     * A Map of the state of this DNSObject, null until state values are
+     * first asked for
      */
     protected Map<Object, Object>  values;
+    /**
+     * number of times this DNSObject itself has been changed
+     */
+    protected int                  modifications;
+    /**
+     * getModificationCount() when serialized was last generated
+     */
+    protected int                  serializedCount;
+    /**
+     * getModificationCount() when values were last generated
+     */
+    protected int                  valuesCount;
 
     /**
      * Performs operations that will be common to all DNSObjects construction.
      */
     public AbstractDNSObject() {
-        this.changed = true;
-        this.values = new Map<Object, Object>();
+        this.serializedChanged = true;
+        this.valuesChanged     = true;
+        this.values            = null;
+    }
+
+    /**
+     * Records that the state of this DNSObject has changed, so serialized
+     * and values both have to be re-generated the next time they're used.
+     */
+    protected void markChanged() {
+        serializedChanged = true;
+        valuesChanged     = true;
+        modifications++;
+    }
+
+    /**
+     * Records that a part of this DNSObject is about to be replaced or
+     * dropped.  The part's count is kept in modifications, so
+     * getModificationCount() never goes down, even when the new part has
+     * been changed fewer times than the old one.
+     *
+     * @param part the part being replaced, may be null
+     */
+    protected void replacing(DNSObject part) {
+        modifications += countOf(part);
+    }
+
+    /**
+     * Returns the number of times this DNSObject has been changed.  Objects
+     * made up of other DNSObjects add their parts' counts to it.
+     *
+     * @return the modification count of this DNSObject
+     */
+    public int getModificationCount() {
+        return modifications;
+    }
+
+    /**
+     * Returns wether serialized has to be re-generated, because either
+     * this DNSObject or one of its parts has changed since it last was.
+     *
+     * @return true if serialized is out of date
+     */
+    protected boolean isSerializedStale() {
+        return serializedChanged || serializedCount != getModificationCount();
+    }
+
+    /**
+     * Returns wether values has to be re-generated, because either this
+     * DNSObject or one of its parts has changed since it last was.
+     *
+     * @return true if values is out of date
+     */
+    protected boolean isValuesStale() {
+        return valuesChanged || valuesCount != getModificationCount();
+    }
+
+    /**
+     * Returns the modification count of a part of this DNSObject, 0 if
+     * the part isn't set.
+     *
+     * @param part a part of this DNSObject, may be null
+     * @return the part's modification count
+     */
+    protected static int countOf(DNSObject part) {
+        return part == null ? 0 : part.getModificationCount();
+    }
+
+    /**
+     * Empties values ready for it to be re-generated, creating it the
+     * first time.
+     */
+    protected void resetValues() {
+        if (values == null) {
+            values = new Map<Object, Object>();
+        } else {
+            values.clear();
+        }
     }
 
+    /**
+     * Puts this DNSObject back into the state it was created in so it can
+     * be reused, see DNSObjectPool.  Objects it refers to are dropped
+     * rather than reset, except for ones it created itself.
+     */
+    public abstract void reset();
+
     /**
      * Returns the length of the serialized version of this DNSObject, 
      * in bytes
@@ -35,7 +138,7 @@ public abstract class AbstractDNSObject implements DNSObject {
      * @return the length of the serialized version of this DNSObject.
      */
     public int getLength() {
-        this.generateTransient();
+        this.generateSerialized();
         return serialized.length;
     }
 
@@ -46,6 +149,13 @@ public abstract class AbstractDNSObject implements DNSObject {
      * @return a serialized version of this DNSObject.
      */
     public abstract byte[] serialize();
+
+    /**
+     * Writes this DNSObject into the given buffer as per the DNS protocol.
+     *
+     * @param buffer the buffer to write into
+     */
+    public abstract void writeTo(ByteBuffer buffer);
     
     /**
      * Returns a mapping of the state values of this DNSObject.
@@ -55,8 +165,15 @@ public abstract class AbstractDNSObject implements DNSObject {
     public abstract Map  stateValues();
     
     /**
-     * Generates transient state.  Should at least generate serialized and
-     * values.  Should only re-generate when changed == true.
+     * Generates serialized.  Should only re-generate when
+     * serializedChanged == true.
+     */
+    protected abstract void generateSerialized();
+
+    /**
+     * Generates values.  Should only re-generate when valuesChanged ==
+     * true.  Kept apart from generateSerialized() so sending and receiving
+     * packets never builds the Maps only the GUI and debug output use.
      */
-    protected abstract void generateTransient();
+    protected abstract void generateValues();
 }
@@ -0,0 +1,274 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A read cursor over a region of raw bytes.  Keeps track of a position
+ * within the region and reads unsigned 8, 16 and 32 bit values in network
+ * byte order without boxing anything, so a whole packet can be parsed
+ * straight off the received datagram.  Reading past the end of the region
+ * throws a DNSParseException rather than wrapping around.
+ *
+ * @author Chris Blades
+ * @version 2/4/2010
+ */
+public class ByteCursor {
+    /** bytes this cursor reads from */
+    private ByteBuffer buffer;
+
+    /** index of the first byte of the region within buffer */
+    private int        offset;
+
+    /** number of bytes in the region */
+    private int        length;
+
+    /** current position, relative to offset */
+    private int        position;
+
+    /**
+     * Creates a new ByteCursor over all of the given bytes with
+     * position = 0.
+     *
+     * @param bytes the bytes to read
+     */
+    public ByteCursor(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Creates a new ByteCursor over length bytes of the given array,
+     * starting at offset, with position = 0.
+     *
+     * @param bytes the bytes to read
+     * @param offset index of the first byte to read
+     * @param length number of bytes to read
+     */
+    public ByteCursor(byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes), offset, length);
+    }
+
+    /**
+     * Creates a new ByteCursor over the remaining bytes of the given
+     * buffer.  The buffer is read with absolute gets, so neither its
+     * position nor its limit are changed.
+     *
+     * @param buffer the buffer to read
+     */
+    public ByteCursor(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Creates a new ByteCursor over length bytes of the given buffer,
+     * starting at the absolute index offset.
+     *
+     * @param buffer the buffer to read
+     * @param offset absolute index of the first byte to read
+     * @param length number of bytes to read
+     */
+    private ByteCursor(ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IndexOutOfBoundsException("region " + offset + "+"
+                                                + length + " outside buffer");
+        }
+        this.buffer   = buffer;
+        this.offset   = offset;
+        this.length   = length;
+        this.position = 0;
+    }
+
+    /**
+     * Returns the current position within the region.
+     *
+     * @return the position within the region
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Sets the position within the region.
+     *
+     * @param position new position within the region
+     */
+    public void setPosition(int position) {
+        if (position < 0 || position > length) {
+            throw new IndexOutOfBoundsException("position " + position
+                                                + " outside 0.." + length);
+        }
+        this.position = position;
+    }
+
+    /**
+     * Moves the position forward by count bytes.
+     *
+     * @param count number of bytes to skip
+     */
+    public void skip(int count) {
+        require(count);
+        position += count;
+    }
+
+    /**
+     * Returns the number of bytes in the region.
+     *
+     * @return the number of bytes in the region
+     */
+    public int size() {
+        return this.length;
+    }
+
+    /**
+     * Returns the number of bytes between the position and the end of the
+     * region.
+     *
+     * @return the number of bytes left to read
+     */
+    public int remaining() {
+        return length - position;
+    }
+
+    /**
+     * Returns the byte at the given position without moving the cursor.
+     *
+     * @param index position of the byte to return
+     * @return the byte at index
+     */
+    public byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new DNSParseException("read outside message", index);
+        }
+        return buffer.get(offset + index);
+    }
+
+    /**
+     * Returns the unsigned 16 bit value at the given position without
+     * moving the cursor.
+     *
+     * @param index position of the first of the two bytes
+     * @return the two bytes at index as an unsigned value
+     */
+    public int getU16(int index) {
+        return ((get(index) & 0xFF) << 8) | (get(index + 1) & 0xFF);
+    }
+
+    /**
+     * Returns the 32 bit value at the given position without moving the
+     * cursor.
+     *
+     * @param index position of the first of the four bytes
+     * @return the four bytes at index as an unsigned value
+     */
+    public long getU32(int index) {
+        return ((long)getU16(index) << 16) | getU16(index + 2);
+    }
+
+    /**
+     * Reads the byte at the current position and advances by 1.
+     *
+     * @return the next byte
+     */
+    public byte getNext() {
+        require(1);
+        return buffer.get(offset + position++);
+    }
+
+    /**
+     * Reads an unsigned 8 bit value and advances by 1.
+     *
+     * @return the next byte as an unsigned value
+     */
+    public int readU8() {
+        return getNext() & 0xFF;
+    }
+
+    /**
+     * Reads an unsigned 16 bit value in network order and advances by 2.
+     *
+     * @return the next two bytes as an unsigned value
+     */
+    public int readU16() {
+        require(2);
+        int index = offset + position;
+        position += 2;
+        return ((buffer.get(index) & 0xFF) << 8)
+              | (buffer.get(index + 1) & 0xFF);
+    }
+
+    /**
+     * Reads a 32 bit value in network order and advances by 4.  Returned
+     * as a long so values above 2^31 stay positive.
+     *
+     * @return the next four bytes as an unsigned value
+     */
+    public long readU32() {
+        require(4);
+        int index = offset + position;
+        position += 4;
+        return ((long)(buffer.get(index)     & 0xFF) << 24)
+             | ((long)(buffer.get(index + 1) & 0xFF) << 16)
+             | ((long)(buffer.get(index + 2) & 0xFF) << 8)
+             |  (long)(buffer.get(index + 3) & 0xFF);
+    }
+
+    /**
+     * Returns a new cursor over length bytes of this region starting at
+     * the given position.  The bytes are shared, not copied.
+     *
+     * @param start position of the first byte of the slice
+     * @param length number of bytes in the slice
+     * @return a cursor over the slice, with position = 0
+     */
+    public ByteCursor slice(int start, int length) {
+        if (start < 0 || length < 0 || start + length > this.length) {
+            throw new IndexOutOfBoundsException("slice " + start + "+"
+                                                + length + " outside 0.."
+                                                + this.length);
+        }
+        return new ByteCursor(buffer, offset + start, length);
+    }
+
+    /**
+     * Copies length bytes starting at the given position into a new array.
+     *
+     * @param start position of the first byte to copy
+     * @param length number of bytes to copy
+     * @return a copy of the bytes
+     */
+    public byte[] copy(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = get(start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Copies length bytes starting at the given position into target,
+     * starting at target's position.  The bytes go straight from buffer to
+     * buffer without an array in between.
+     *
+     * @param start position of the first byte to copy
+     * @param length number of bytes to copy
+     * @param target the buffer to copy into
+     */
+    public void copyTo(int start, int length, ByteBuffer target) {
+        if (start < 0 || length < 0 || start + length > this.length) {
+            throw new DNSParseException("read outside message", start);
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.limit(offset + start + length);
+        source.position(offset + start);
+        target.put(source);
+    }
+
+    /**
+     * Makes sure count more bytes can be read from the current position.
+     *
+     * @param count number of bytes about to be read
+     */
+    private void require(int count) {
+        if (count < 0 || length - position < count) {
+            throw new DNSParseException("truncated message, needed " + count
+                                        + " more bytes", position);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Tests DNSCache by caching a response with records living 2 and 100
+ * seconds, checking a hit after a second has both times to live lowered
+ * by one, and that the response is gone once the shorter one runs out.
+ * Takes a little over two seconds.  Prints ok or FAILED for each.
+ *
+ * @author Chris Blades
+ * @version 24/4/2010
+ */
+public class CacheTest {
+    public static void main(String[] args) throws InterruptedException {
+        DNSCache cache = new DNSCache();
+        boolean cached = cache.put("www.example.com", DNSRecordTypeEnum.A,
+                                   DNSRecordClassEnum.IN, buildResponse());
+        System.out.println(cached ? "ok cached" : "FAILED cached");
+
+        DNSPacket hit = cache.get("WWW.Example.com.", DNSRecordTypeEnum.A,
+                                  DNSRecordClassEnum.IN);
+        check("hit ignoring case and trailing dot", hit, 2, 100);
+
+        Thread.sleep(1100);
+        hit = cache.get("www.example.com", DNSRecordTypeEnum.A,
+                        DNSRecordClassEnum.IN);
+        check("hit after a second", hit, 1, 99);
+
+        Thread.sleep(1000);
+        hit = cache.get("www.example.com", DNSRecordTypeEnum.A,
+                        DNSRecordClassEnum.IN);
+        System.out.println(hit == null && cache.getSize() == 0
+                           ? "ok expired" : "FAILED expired");
+    }
+
+    /**
+     * Prints wether a hit holds both records with the expected times to
+     * live.
+     *
+     * @param description what's being tested
+     * @param hit the packet returned by the cache
+     * @param first expected time to live of the first record
+     * @param second expected time to live of the second record
+     */
+    private static void check(String description, DNSPacket hit, int first,
+                              int second) {
+        boolean good = hit != null && hit.getAnswers().size() == 2
+                    && hit.getAnswers().get(0).getTTL() == first
+                    && hit.getAnswers().get(1).getTTL() == second;
+        System.out.println((good ? "ok " : "FAILED ") + description);
+    }
+
+    /**
+     * Builds a response to www.example.com with two A records, living 2
+     * and 100 seconds.
+     *
+     * @return the response
+     */
+    private static DNSPacket buildResponse() {
+        DNSHeader header = new DNSHeaderImpl();
+        header.setNumQuestions(1);
+        header.setNumAnswers(2);
+        header.getFlags().setIsRequest(false);
+
+        DNSQuestion question = new DNSQuestionImpl();
+        question.setName(new DNSUrlImpl("www.example.com"));
+        question.setType(DNSRecordTypeEnum.A);
+        question.setClass(DNSRecordClassEnum.IN);
+
+        DNSPacket packet = new DNSPacketImpl();
+        packet.setHeader(header);
+        packet.setQuestion(question);
+        packet.addAnswer(record("10.0.0.1", 2));
+        packet.addAnswer(record("10.0.0.2", 100));
+        return packet;
+    }
+
+    /**
+     * Builds an A record for www.example.com.
+     *
+     * @param ip the address in the record
+     * @param ttl the time to live of the record
+     * @return the record
+     */
+    private static DNSAnswer record(String ip, int ttl) {
+        DNSAnswer answer = new DNSAnswerImpl(new DNSUrlImpl("www.example.com"),
+                                             new DNSIPImpl(ip));
+        answer.setType(DNSRecordTypeEnum.A);
+        answer.setClass(DNSRecordClassEnum.IN);
+        answer.setTTL(ttl);
+        return answer;
+    }
+}
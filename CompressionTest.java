@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/**
+ * Tests name compression in DNSPacketImpl by serializing a response whose
+ * names share suffixes with and without compression, parsing the
+ * compressed version back and checking it holds the same records.  Prints
+ * the length of both versions and ok or FAILED.
+ *
+ * @author Chris Blades
+ * @version 24/4/2010
+ */
+public class CompressionTest {
+    public static void main(String[] args) {
+        byte[] plain      = buildResponse(false).serialize();
+        byte[] compressed = buildResponse(true).serialize();
+        System.out.println("uncompressed " + plain.length + " bytes, "
+                           + "compressed " + compressed.length + " bytes");
+
+        DNSPacketParserDecorator dec =
+            new DNSPacketParserDecorator(new ByteCursor(compressed));
+        dec.parse();
+        System.out.println(dec.stateValues());
+
+        // the parsed packet writes its names out in full again
+        boolean same = compressed.length < plain.length
+                    && Arrays.equals(dec.serialize(), plain);
+        System.out.println(same ? "ok" : "FAILED");
+    }
+
+    /**
+     * Builds a response to www.example.com whose records repeat the names
+     * and suffixes of the question and of each other.
+     *
+     * @param compression wether the response compresses names
+     * @return the response
+     */
+    private static DNSPacketImpl buildResponse(boolean compression) {
+        DNSHeader header = new DNSHeaderImpl();
+        header.setIdentifier(4321);
+        header.setNumQuestions(1);
+        header.setNumAnswers(2);
+        header.setNumAuthorityAnswers(1);
+        header.getFlags().setIsRequest(false);
+
+        DNSQuestion question = new DNSQuestionImpl();
+        question.setName(new DNSUrlImpl("www.example.com"));
+        question.setType(DNSRecordTypeEnum.A);
+        question.setClass(DNSRecordClassEnum.IN);
+
+        DNSPacketImpl packet = new DNSPacketImpl();
+        packet.setHeader(header);
+        packet.setQuestion(question);
+        packet.addAnswer(record("www.example.com", DNSRecordTypeEnum.CNAME,
+                                new DNSUrlImpl("cdn.example.com")));
+        packet.addAnswer(record("cdn.example.com", DNSRecordTypeEnum.A,
+                                new DNSIPImpl("10.0.0.1")));
+        packet.addAuthoritativeAnswer(record("example.com",
+                                DNSRecordTypeEnum.NS,
+                                new DNSUrlImpl("ns1.example.com")));
+        packet.setCompression(compression);
+        return packet;
+    }
+
+    /**
+     * Builds a record in class IN with a TTL of an hour.
+     *
+     * @param name the name of the record
+     * @param type the type of the record
+     * @param data the data of the record
+     * @return the record
+     */
+    private static DNSAnswer record(String name, DNSRecordType type,
+                                    DNSResource data) {
+        DNSAnswer answer = new DNSAnswerImpl(new DNSUrlImpl(name), data);
+        answer.setType(type);
+        answer.setClass(DNSRecordClassEnum.IN);
+        answer.setTTL(3600);
+        return answer;
+    }
+}
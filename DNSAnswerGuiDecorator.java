@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import javax.swing.tree.DefaultMutableTreeNode;
 
 /**
@@ -183,6 +184,15 @@ public class DNSAnswerGuiDecorator extends DefaultMutableTreeNode
         return answer.getLength();
     }
 
+    /**
+     * Returns the modification count of the underlying DNSAnswer.
+     *
+     * @return the modification count of this DNSAnswer
+     */
+    public int getModificationCount() {
+        return answer.getModificationCount();
+    }
+
     /**
      * Returns the serialized version of the underlying DNSAnswer.
      *
@@ -192,6 +202,16 @@ public class DNSAnswerGuiDecorator extends DefaultMutableTreeNode
         return answer.serialize();
     }
 
+    /**
+     * Writes the serialized version of the wrapped DNSAnswer into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        answer.writeTo(buffer);
+    }
+
     /**
      * Returns a mapping of the state values of the underlying DNSAnswer
      *
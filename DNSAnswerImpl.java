@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of DNSAnswer.
  *
@@ -19,9 +21,6 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
     /** Time-to-Live for this Record */
     private int             answerTTL;
 
-    /** the length of the serialized version of this DNSAnswer */
-    private int             length;
-
     /** The data contained within this Record */
     private DNSResource     data;
 
@@ -63,12 +62,13 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
     }
     
     /**
-     * Return the length of the data portion of this record.
+     * Return the length of the data portion of this record, as the data
+     * is now, so it follows any changes made to the data itself.
      *
      * @return the length of the data portion of this record.
      */
     public int getDataLength() {
-        return this.length;
+        return data == null ? 0 : data.getLength();
     }
 
     /**
@@ -79,7 +79,7 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
      */
     public void setTTL(int TTL) {
         this.answerTTL = TTL;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -88,9 +88,9 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
      * @param data new contents of the data portion of this record.
      */
     public void setData(DNSResource data) {
+        replacing(this.data);
         this.data = data;
-        this.length = data.getLength();
-        changed = true;
+        markChanged();
     }
     
     /**
@@ -126,8 +126,9 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
      * @param name new name for this Record.
      */
     public void setName(DNSUrl name) {
+        replacing(this.answerName);
         this.answerName = name;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -136,8 +137,9 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
      * @param type new type for this record.
      */
     public void setType(DNSRecordType type) {
+        replacing(this.answerType);
         this.answerType = type;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -146,40 +148,83 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
      * @param recordClass new DNS class for this record.
      */
     public void setClass(DNSRecordClass recordClass) {
+        replacing(this.answerClass);
         this.answerClass = recordClass;
-        changed = true;
+        markChanged();
     }
     
+    /**
+     * Drops the name, type, class and data of this answer and sets its
+     * TTL to 0.  They have to be set again before it's used.
+     */
+    public void reset() {
+        modifications = getModificationCount();
+        this.answerName  = null;
+        this.answerType  = null;
+        this.answerClass = null;
+        this.answerTTL   = 0;
+        this.data        = null;
+        markChanged();
+    }
+
+    /**
+     * Returns the number of times this answer or its name, type, class or
+     * data have been changed.
+     *
+     * @return the modification count of this answer
+     */
+    public int getModificationCount() {
+        return modifications + countOf(answerName) + countOf(answerType)
+            + countOf(answerClass) + countOf(data);
+    }
+
     /**
      * Return the serialized form of this DNSAnswer as per the DNS protocol.
      *
      * @return this DNSAnswer in serialized form
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return this.serialized;
     }
 
+    /**
+     * Writes this answer into the given buffer, each part writing itself
+     * in turn.  The data length is filled in once the data has been
+     * written, so it always matches the bytes that follow it.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        answerName.writeTo(buffer);
+        answerType.writeTo(buffer);
+        answerClass.writeTo(buffer);
+        buffer.putInt(answerTTL);
+
+        // leave room for the data length, then go back and fill it in
+        int lengthIndex = buffer.position();
+        buffer.putShort((short)0);
+        data.writeTo(buffer);
+        buffer.putShort(lengthIndex,
+                        (short)(buffer.position() - lengthIndex - 2));
+    }
+
     /**
      * Return a mapping of the state of this DNSAnswer
      *
      * @return a mappig of the state of this DNSAnswer
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return values;
     }
 
     /**
-     * Generates structures that need to be re-generated everytime the state
-     * of this DNSAnswer is changed; i.e., serialized and values.
+     * Re-generates serialized if this answer has changed since it was last
+     * serialized.
      */
-    protected void generateTransient() {
-        if (changed) {
-            //
-            // construct values
-            //
-
+    protected void generateSerialized() {
+        if (isSerializedStale()) {
             // size equal to size of name + size of data + 2-byte type + 2-byte
             // class + 4-byte TTL + 2-byte length
             int nameLength = answerName.getLength();
@@ -211,29 +256,38 @@ public class DNSAnswerImpl extends AbstractDNSObject implements DNSAnswer{
             serialized[nameLength + 7] = (byte)(answerTTL);
 
             // copy data length
-            serialized[nameLength + 8] = (byte)(length >>> 8);
-            serialized[nameLength + 9] = (byte)length;
+            serialized[nameLength + 8] = (byte)(dataLength >>> 8);
+            serialized[nameLength + 9] = (byte)dataLength;
             
             // copy answer data
             byte[] dataBytes = data.serialize();
             for (int i = 0; i < dataBytes.length; i++) {
                 serialized[i + nameLength + 10] = dataBytes[i];
             }
-            
 
-            //
-            // construct values
-            //
+            serializedChanged = false;
+            serializedCount   = getModificationCount();
+        }
+    }
+
+    /**
+     * Re-generates values if this answer has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (isValuesStale()) {
+            resetValues();
             try {
                 values.put("Answer Name", answerName.stateValues());
                 values.put("Answer Type", answerType.stateValues());
                 values.put("Answer Class", answerClass.stateValues());
                 values.put("Time-To-Live", answerTTL);
-                values.put("Data Length", length);
+                values.put("Data Length", getDataLength());
                 values.put("Answer Data", data.stateValues());
             } catch(Exception e) {}
-        
-            changed = false;
+
+            valuesChanged = false;
+            valuesCount   = getModificationCount();
         }
     }
 }
@@ -13,7 +13,10 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
 
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
+
+    /** names already decoded from the same message */
+    private DNSNameTable names;
 
     /**
      * Creates a new DNSAnswerParserDecorator with the given byte
@@ -21,9 +24,45 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSAnswerParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSAnswerParserDecorator(ByteCursor bytes) {
+        this(bytes, new DNSNameTable());
+    }
+
+    /**
+     * Creates a new DNSAnswerParserDecorator with the given byte
+     * buffer that shares already decoded names with the rest of the
+     * message.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param names names already decoded from the same message
+     */
+    public DNSAnswerParserDecorator(ByteCursor bytes, DNSNameTable names) {
+        this(bytes, names, new DNSAnswerImpl());
+    }
+
+    /**
+     * Creates a new DNSAnswerParserDecorator with the given byte
+     * buffer that parses into the given DNSAnswer, such as one taken from
+     * a DNSObjectPool.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param names names already decoded from the same message
+     * @param answer the DNSAnswer to parse into
+     */
+    public DNSAnswerParserDecorator(ByteCursor bytes, DNSNameTable names,
+                                    DNSAnswer answer) {
         this.bytes = bytes;
-        this.answer = new DNSAnswerImpl();
+        this.names = names;
+        this.answer = answer;
+    }
+
+    /**
+     * Returns the DNSAnswer this decorator parses into.
+     *
+     * @return the wrapped DNSAnswer
+     */
+    public DNSAnswer getAnswer() {
+        return this.answer;
     }
 
     /**
@@ -32,7 +71,7 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
      */
     public void parse() {
         // parse name
-        DNSUrlParserDecorator url = new DNSUrlParserDecorator(bytes);
+        DNSUrlParserDecorator url = new DNSUrlParserDecorator(bytes, names);
         url.parse();
         answer.setName(url);
        
@@ -49,33 +88,86 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
         answer.setClass(clss);
         
         // parse TTL
-        ByteBuffer bb = ByteBuffer.allocate(4);
-        bb.put(bytes.getNext());
-        bb.put(bytes.getNext());
-        bb.put(bytes.getNext());
-        bb.put(bytes.getNext());
-        answer.setTTL(bb.getInt(0));
+        answer.setTTL((int)bytes.readU32());
         
         //
-        // do not parse Data Length, let DNSAnswerImpl handle it.
-        // But be sure to forward buffer. 
+        // do not keep Data Length, let DNSAnswerImpl handle it, but use
+        // it to make sure the buffer ends up at the next record
         //
-        bytes.getNext();
-        bytes.getNext();
-              
-        if (answer.getType().stateValues().equals(
-                                        DNSRecordTypeEnum.A.stateValues())) {
+        int length = bytes.readU16();
+        int start  = bytes.getPosition();
+
+        answer.setData(parseData(bytes, type.getCode(), length, names));
+        bytes.setPosition(start + length);
+    }
 
+    /**
+     * Parses the data section of a record of the given type from the
+     * current position of the byte buffer.  Addresses and names are
+     * interpreted, anything else is kept as raw bytes.
+     *
+     * @param bytes the byte buffer, positioned at the start of the data
+     * @param type the numeric type of the record the data belongs to
+     * @param length the length of the data section
+     * @param names names already decoded from the same message
+     * @return the parsed data
+     */
+    public static DNSResource parseData(ByteCursor bytes, int type,
+                                        int length, DNSNameTable names) {
+        int start = bytes.getPosition();
+        if (length > bytes.remaining()) {
+            throw new DNSParseException("data length " + length
+                                        + " runs past end of message", start);
+        }
+        if (type == DNSRecordTypeEnum.A.getCode() && length == 4) {
             DNSIPParserDecorator ip = new DNSIPParserDecorator(bytes);
             ip.parse();
-            answer.setData(ip);
-        } else {
-            url = new DNSUrlParserDecorator(bytes);
+            return ip;
+        } else if (type == DNSRecordTypeEnum.NS.getCode()
+                || type == DNSRecordTypeEnum.CNAME.getCode()
+                || type == DNSRecordTypeEnum.PTR.getCode()) {
+            DNSUrlParserDecorator url = new DNSUrlParserDecorator(bytes, names);
             url.parse();
-            answer.setData(url);
+            if (bytes.getPosition() > start + length) {
+                throw new DNSParseException("name runs past data length",
+                                            start);
+            }
+            return url;
+        } else {
+            DNSRawData raw = new DNSRawData(bytes.copy(start, length));
+            bytes.skip(length);
+            return raw;
         }
     }
 
+    /**
+     * Returns the numeric type of the record at the current position of the
+     * byte buffer without moving it.
+     *
+     * @param bytes the byte buffer, positioned at the start of a record
+     * @return the numeric type of the record
+     */
+    public static int peekType(ByteCursor bytes) {
+        int start = bytes.getPosition();
+        DNSUrlParserDecorator.skipUrl(bytes);
+        int type = bytes.readU16();
+        bytes.setPosition(start);
+        return type;
+    }
+
+    /**
+     * Moves the byte buffer past the record at its current position
+     * without creating anything, using the record's data length.
+     *
+     * @param bytes the byte buffer, positioned at the start of a record
+     */
+    public static void skip(ByteCursor bytes) {
+        DNSUrlParserDecorator.skipUrl(bytes);
+        // type, class and TTL
+        bytes.skip(8);
+        bytes.skip(bytes.readU16());
+    }
+
 
     //
     // DNSAnswer
@@ -190,6 +282,15 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
         return answer.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSAnswer object.
+     *
+     * @return the modification count of this DNSAnswer
+     */
+    public int getModificationCount() {
+        return answer.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed dnsanswer object.
      * can't just return the byte buffer because we don't know what else is in
@@ -201,6 +302,16 @@ public class DNSAnswerParserDecorator implements DNSAnswer {
         return answer.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSAnswer into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        answer.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSAnswer object.
      *
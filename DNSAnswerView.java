@@ -0,0 +1,289 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only DNSAnswer that decodes its fields straight out of a
+ * received datagram the first time they're asked for.
+ *
+ * @author Chris Blades
+ * @version 4/4/2010
+ */
+public class DNSAnswerView implements DNSAnswer {
+    /** the datagram this view reads from */
+    private ByteCursor  bytes;
+
+    /** names already decoded from the same message */
+    private DNSNameTable names;
+
+    /** position of the answer within the datagram */
+    private int         offset;
+
+    /** position of the type field, -1 until the name has been skipped */
+    private int         fieldsOffset;
+
+    /** the decoded name, null until it's asked for */
+    private DNSUrl      name;
+
+    /** the decoded data, null until it's asked for */
+    private DNSResource data;
+
+    /** fully parsed answer, only built if it has to be serialized */
+    private DNSAnswerParserDecorator parsed;
+
+    /**
+     * Creates a new DNSAnswerView over the answer at the given position
+     * of the byte buffer.
+     *
+     * @param bytes byte buffer holding the whole message
+     * @param names names already decoded from the same message
+     * @param offset position of the answer within the message
+     */
+    public DNSAnswerView(ByteCursor bytes, DNSNameTable names,
+                         int offset) {
+        this.bytes        = bytes;
+        this.names        = names;
+        this.offset       = offset;
+        this.fieldsOffset = -1;
+    }
+
+    /**
+     * Returns the position of the type field, skipping over the name the
+     * first time it's needed.
+     *
+     * @return the position of the type field
+     */
+    private int fieldsOffset() {
+        if (fieldsOffset < 0) {
+            bytes.setPosition(offset);
+            DNSUrlParserDecorator.skipUrl(bytes);
+            fieldsOffset = bytes.getPosition();
+        }
+        return fieldsOffset;
+    }
+
+    /**
+     * Returns the fully parsed answer, parsing it the first time it's
+     * needed.
+     *
+     * @return the parsed answer
+     */
+    private DNSAnswer parsed() {
+        if (parsed == null) {
+            bytes.setPosition(offset);
+            parsed = new DNSAnswerParserDecorator(bytes, names);
+            parsed.parse();
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the name of the answer, decoding it the first time it's
+     * asked for.
+     *
+     * @return the name of the answer
+     */
+    public DNSUrl getName() {
+        if (name == null) {
+            bytes.setPosition(offset);
+            DNSUrlParserDecorator url =
+                                new DNSUrlParserDecorator(bytes, names);
+            url.parse();
+            fieldsOffset = bytes.getPosition();
+            name = url;
+        }
+        return name;
+    }
+
+    /**
+     * Returns the type of the answer.  A type that isn't one of
+     * DNSRecordTypeEnum keeps its number, as the parser does.
+     *
+     * @return the type of the answer
+     */
+    public DNSRecordType getType() {
+        DNSRecordTypeEnum type = DNSRecordTypeEnum.forCode(getTypeCode());
+        if (type != null) {
+            return type;
+        }
+        DNSRecordTypeParserDecorator unknown =
+                new DNSRecordTypeParserDecorator(
+                                        bytes.slice(fieldsOffset(), 2));
+        unknown.parse();
+        return unknown;
+    }
+
+    /**
+     * Returns the numeric type of the answer as it appears in the
+     * datagram.
+     *
+     * @return the type field of the answer
+     */
+    public int getTypeCode() {
+        return bytes.getU16(fieldsOffset());
+    }
+
+    /**
+     * Returns the class of the answer.  A class that isn't one of
+     * DNSRecordClassEnum keeps its number, as the parser does.
+     *
+     * @return the class of the answer
+     */
+    public DNSRecordClass getRecordClass() {
+        DNSRecordClassEnum recordClass =
+                        DNSRecordClassEnum.forCode(getClassCode());
+        if (recordClass != null) {
+            return recordClass;
+        }
+        DNSRecordClassParserDecorator unknown =
+                new DNSRecordClassParserDecorator(
+                                        bytes.slice(fieldsOffset() + 2, 2));
+        unknown.parse();
+        return unknown;
+    }
+
+    /**
+     * Returns the numeric class of the answer as it appears in the
+     * datagram.  OPT records carry their UDP payload size here.
+     *
+     * @return the class field of the answer
+     */
+    public int getClassCode() {
+        return bytes.getU16(fieldsOffset() + 2);
+    }
+
+    /**
+     * Returns the time to live of the answer.
+     *
+     * @return the time to live of the answer
+     */
+    public int getTTL() {
+        return (int)bytes.getU32(fieldsOffset() + 4);
+    }
+
+    /**
+     * Returns the length of the data section once any compressed names in
+     * it are written out in full, as DNSAnswerImpl does.
+     *
+     * @return the length of the data of the answer
+     */
+    public int getDataLength() {
+        return getData().getLength();
+    }
+
+    /**
+     * Returns the length of the data section as it appears in the
+     * datagram.
+     *
+     * @return the data length field of the answer
+     */
+    public int getWireDataLength() {
+        return bytes.getU16(fieldsOffset() + 8);
+    }
+
+    /**
+     * Returns the data of the answer, decoding it the first time it's
+     * asked for.
+     *
+     * @return the data of the answer
+     */
+    public DNSResource getData() {
+        if (data == null) {
+            bytes.setPosition(fieldsOffset() + 10);
+            data = DNSAnswerParserDecorator.parseData(bytes,
+                                    bytes.getU16(fieldsOffset()),
+                                    getWireDataLength(), names);
+        }
+        return data;
+    }
+
+    /**
+     * Not supported, DNSAnswerView is read-only.
+     *
+     * @param name ignored
+     */
+    public void setName(DNSUrl name) {
+        throw new UnsupportedOperationException("DNSAnswerView is read-only");
+    }
+
+    /**
+     * Not supported, DNSAnswerView is read-only.
+     *
+     * @param type ignored
+     */
+    public void setType(DNSRecordType type) {
+        throw new UnsupportedOperationException("DNSAnswerView is read-only");
+    }
+
+    /**
+     * Not supported, DNSAnswerView is read-only.
+     *
+     * @param recordClass ignored
+     */
+    public void setClass(DNSRecordClass recordClass) {
+        throw new UnsupportedOperationException("DNSAnswerView is read-only");
+    }
+
+    /**
+     * Not supported, DNSAnswerView is read-only.
+     *
+     * @param TTL ignored
+     */
+    public void setTTL(int TTL) {
+        throw new UnsupportedOperationException("DNSAnswerView is read-only");
+    }
+
+    /**
+     * Not supported, DNSAnswerView is read-only.
+     *
+     * @param data ignored
+     */
+    public void setData(DNSResource data) {
+        throw new UnsupportedOperationException("DNSAnswerView is read-only");
+    }
+
+    /**
+     * Returns the length of this answer once serialized with its names
+     * uncompressed.
+     *
+     * @return the length of this answer
+     */
+    public int getLength() {
+        return parsed().getLength();
+    }
+
+    /**
+     * Returns 0, an answer view can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns this answer serialized with its names uncompressed, since
+     * the bytes in the datagram may point elsewhere in the message.
+     *
+     * @return this answer serialized as per the DNS protocol
+     */
+    public byte[] serialize() {
+        return parsed().serialize();
+    }
+
+    /**
+     * Writes this answer into the given buffer with its names uncompressed.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        parsed().writeTo(buffer);
+    }
+
+    /**
+     * Returns a mapping of the state values of this answer.
+     *
+     * @return the state values of this answer
+     */
+    public Map stateValues() {
+        return parsed().stateValues();
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves names without blocking and without any GUI.  Every lookup
+ * returns a CompletableFuture straight away, which is completed with the
+ * response once it arrives, so one thread can start any number of
+ * lookups and wait for none of them.
+ *
+ * A future is completed exceptionally with a
+ * java.net.SocketTimeoutException if no response arrives in time, or an
+ * IOException if the query can't be sent.  Cancelling a future stops the
+ * lookup.  Futures are completed on the resolver's network thread, so
+ * anything slow chained onto them should use the *Async methods.
+ *
+ * Positive responses are kept in a DNSCache until they expire, and a
+ * question already in the cache gets a future that is already complete,
+ * without a query being sent.
+ *
+ * @author Chris Blades
+ * @version 20/4/2010
+ */
+public class DNSAsyncResolver {
+    /** port DNS servers listen on */
+    public static final int DNS_PORT = 53;
+
+    /** sends the queries and receives the responses */
+    private DNSResolverEngine engine;
+
+    /** responses kept for reuse, null if none are kept */
+    private DNSCache          cache;
+
+    /**
+     * Creates a new DNSAsyncResolver sending queries to the given server
+     * on port 53.
+     *
+     * @param server the name or address of the DNS server
+     * @throws IOException if the server's address can't be found or the
+     *         channels can't be opened
+     */
+    public DNSAsyncResolver(String server) throws IOException {
+        this(new InetSocketAddress(server, DNS_PORT));
+    }
+
+    /**
+     * Creates a new DNSAsyncResolver sending queries to the given server.
+     *
+     * @param server the address of the DNS server
+     * @throws IOException if the channels can't be opened
+     */
+    public DNSAsyncResolver(SocketAddress server) throws IOException {
+        this(new DNSResolverEngine(server));
+    }
+
+    /**
+     * Creates a new DNSAsyncResolver sending queries through the given
+     * engine and caching up to 10000 responses.  Closing the resolver
+     * closes the engine.
+     *
+     * @param engine the engine to send queries through
+     */
+    public DNSAsyncResolver(DNSResolverEngine engine) {
+        this(engine, new DNSCache());
+    }
+
+    /**
+     * Creates a new DNSAsyncResolver sending queries through the given
+     * engine and keeping responses in the given cache.  Closing the
+     * resolver closes the engine.
+     *
+     * @param engine the engine to send queries through
+     * @param cache the cache to keep responses in, null to keep none
+     */
+    public DNSAsyncResolver(DNSResolverEngine engine, DNSCache cache) {
+        this.engine = engine;
+        this.cache  = cache;
+    }
+
+    /**
+     * Looks up a name, waiting as long as the engine's timeout for the
+     * response.
+     *
+     * @param url the name to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @return a future completed with the response
+     */
+    public CompletableFuture<DNSPacket> resolveAsync(String url,
+                                            DNSRecordType type,
+                                            DNSRecordClass recordClass,
+                                            boolean recursionDesired) {
+        DNSPacket cached = lookUp(url, type, recordClass);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        QueryFuture future = new QueryFuture(cache);
+        future.setQuery(engine.query(url, type, recordClass,
+                                     recursionDesired, future));
+        return future;
+    }
+
+    /**
+     * Looks up a name, waiting at most the given time for the response.
+     *
+     * @param url the name to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @param timeout milliseconds to wait for the response
+     * @return a future completed with the response
+     */
+    public CompletableFuture<DNSPacket> resolveAsync(String url,
+                                            DNSRecordType type,
+                                            DNSRecordClass recordClass,
+                                            boolean recursionDesired,
+                                            long timeout) {
+        DNSPacket cached = lookUp(url, type, recordClass);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        QueryFuture future = new QueryFuture(cache);
+        future.setQuery(engine.query(url, type, recordClass,
+                                     recursionDesired, timeout, future));
+        return future;
+    }
+
+    /**
+     * Returns the cached response to a question.
+     *
+     * @param url the name asked about
+     * @param type the type of record asked for
+     * @param recordClass the class of record asked for
+     * @return the response, or null if none is cached or there's no cache
+     */
+    private DNSPacket lookUp(String url, DNSRecordType type,
+                             DNSRecordClass recordClass) {
+        if (cache == null) {
+            return null;
+        }
+        return cache.get(url, type, recordClass);
+    }
+
+    /**
+     * Returns the cache responses are kept in.
+     *
+     * @return the cache, or null if responses aren't kept
+     */
+    public DNSCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Returns the engine queries are sent through.
+     *
+     * @return the engine
+     */
+    public DNSResolverEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Stops the resolver.  Every lookup that hasn't finished fails with an
+     * IOException.
+     */
+    public void close() {
+        engine.close();
+    }
+
+    /**
+     * A future for one query that is also the query's listener, and
+     * cancels the query when it's cancelled.
+     */
+    private static class QueryFuture extends CompletableFuture<DNSPacket>
+                                     implements DNSResponseListener {
+        /** cache to put the response in, null if there's none */
+        private DNSCache                 cache;
+
+        /** the query this future is for, null until it's been handed over */
+        private volatile DNSPendingQuery query;
+
+        /**
+         * Creates a new QueryFuture.
+         *
+         * @param cache cache to put the response in, null if there's none
+         */
+        public QueryFuture(DNSCache cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * Records the query this future is for, cancelling it if the
+         * future was cancelled before the query was handed over.
+         *
+         * @param query the query
+         */
+        public void setQuery(DNSPendingQuery query) {
+            this.query = query;
+            if (isCancelled()) {
+                query.cancel();
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            DNSPendingQuery current = query;
+            if (cancelled && current != null) {
+                current.cancel();
+            }
+            return cancelled;
+        }
+
+        public void onResponse(DNSPendingQuery query, DNSPacket response) {
+            if (cache != null) {
+                cache.put(query.getName(), query.getType(),
+                          query.getRecordClass(), response);
+            }
+            complete(response);
+        }
+
+        public void onFailure(DNSPendingQuery query, Exception cause) {
+            completeExceptionally(cause);
+        }
+    }
+}
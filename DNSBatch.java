@@ -0,0 +1,213 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of lookups started by DNSBatchResolver.resolveAll(), iterated
+ * over to get each name's result in the order the lookups finish.
+ *
+ * The names are sent from a thread of the batch's own, no faster than
+ * the batch's rate, with at most the batch's window of names sent but not
+ * yet taken with next().  A caller that stops calling next() therefore
+ * stops the batch sending.  hasNext() blocks until a result is ready or
+ * every name has been taken.  cancel() stops a batch that won't be
+ * iterated to the end.
+ *
+ * @author Chris Blades
+ * @version 22/4/2010
+ */
+public class DNSBatch implements Iterator<DNSBatchResult> {
+    /** put in the results once every name has been sent */
+    private static final DNSBatchResult END =
+                                    new DNSBatchResult(null, (Exception)null);
+
+    /** nanoseconds in a second */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** sends the queries */
+    private DNSResolverEngine                   engine;
+
+    /** the names to look up */
+    private Iterable<String>                    names;
+
+    /** the type of record to ask for */
+    private DNSRecordType                       type;
+
+    /** the class of record to ask for */
+    private DNSRecordClass                      recordClass;
+
+    /** wether to ask the server to recurse */
+    private boolean                             recursionDesired;
+
+    /** nanoseconds between queries, 0 to send as fast as the window lets */
+    private long                                interval;
+
+    /** one permit per name that may be sent but not yet taken */
+    private Semaphore                           window;
+
+    /** finished lookups not yet taken, then END */
+    private LinkedBlockingQueue<DNSBatchResult> results;
+
+    /** sends the names */
+    private Thread                              sender;
+
+    /** number of names sent, only read once END has been taken */
+    private int                                 sent;
+
+    /** number of results taken with next() */
+    private int                                 taken;
+
+    /** wether END has been taken */
+    private boolean                             ended;
+
+    /** result hasNext() found that next() hasn't returned yet */
+    private DNSBatchResult                      waiting;
+
+    /** wether the batch has been cancelled */
+    private volatile boolean                    cancelled;
+
+    /**
+     * Creates a new DNSBatch and starts sending.  Only done by
+     * DNSBatchResolver.
+     *
+     * @param engine sends the queries
+     * @param names the names to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @param window most names sent but not yet taken
+     * @param rate most queries sent a second, 0 for no limit
+     */
+    DNSBatch(DNSResolverEngine engine, Iterable<String> names,
+             DNSRecordType type, DNSRecordClass recordClass,
+             boolean recursionDesired, int window, int rate) {
+        this.engine           = engine;
+        this.names            = names;
+        this.type             = type;
+        this.recordClass      = recordClass;
+        this.recursionDesired = recursionDesired;
+        this.interval         = rate > 0 ? NANOS_PER_SECOND / rate : 0;
+        this.window           = new Semaphore(window);
+        this.results          = new LinkedBlockingQueue<DNSBatchResult>();
+
+        this.sender = new Thread(new Runnable() {
+            public void run() {
+                send();
+            }
+        }, "DNSBatch");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Returns wether there's another result, waiting for the next lookup
+     * to finish if there isn't one yet.
+     *
+     * @return false once every name's result has been taken, or the batch
+     *         has been cancelled
+     */
+    public boolean hasNext() {
+        while (waiting == null) {
+            if (cancelled || (ended && taken == sent)) {
+                return false;
+            }
+            DNSBatchResult result;
+            try {
+                result = results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                return false;
+            }
+            if (result == END) {
+                ended = true;
+            } else {
+                waiting = result;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the result of the next lookup to finish, making room in the
+     * window for another name to be sent.
+     *
+     * @return the next result
+     * @throws NoSuchElementException if hasNext() is false
+     */
+    public DNSBatchResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DNSBatchResult result = waiting;
+        waiting = null;
+        taken++;
+        window.release();
+        return result;
+    }
+
+    /**
+     * Not supported, results can't be removed.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("DNSBatch is read-only");
+    }
+
+    /**
+     * Stops sending names.  Lookups already sent finish, but their results
+     * are dropped, and hasNext() is false from now on.
+     */
+    public void cancel() {
+        cancelled = true;
+        sender.interrupt();
+    }
+
+    /**
+     * The sending thread: sends every name, keeping to the window and the
+     * rate, then marks the end of the results.
+     */
+    private void send() {
+        DNSResponseListener listener = new DNSResponseListener() {
+            public void onResponse(DNSPendingQuery query,
+                                   DNSPacket response) {
+                results.add(new DNSBatchResult(query.getName(), response));
+            }
+
+            public void onFailure(DNSPendingQuery query, Exception cause) {
+                results.add(new DNSBatchResult(query.getName(), cause));
+            }
+        };
+
+        int count = 0;
+        try {
+            long nextSend = System.nanoTime();
+            Iterator<String> remaining = names.iterator();
+            while (!cancelled && remaining.hasNext()) {
+                String name = remaining.next();
+                window.acquire();
+                if (interval > 0) {
+                    long now = System.nanoTime();
+                    if (nextSend > now) {
+                        TimeUnit.NANOSECONDS.sleep(nextSend - now);
+                    } else {
+                        // behind, don't make up for it with a burst
+                        nextSend = now;
+                    }
+                    nextSend += interval;
+                }
+                engine.query(name, type, recordClass, recursionDesired,
+                             listener);
+                count++;
+            }
+        } catch (InterruptedException e) {
+            // cancelled
+        } finally {
+            sent = count;
+            results.add(END);
+        }
+    }
+}
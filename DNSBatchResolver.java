@@ -0,0 +1,78 @@
+/**
+ * Looks up long lists of names, such as crawl frontiers or the hosts in
+ * a log, through a DNSResolverEngine.  Queries are streamed out at a set
+ * rate with a bounded number outstanding, and results are streamed back
+ * as they finish, so a list of any length is resolved with one thread and
+ * a few sockets, and never held in memory all at once.
+ *
+ * @author Chris Blades
+ * @version 22/4/2010
+ */
+public class DNSBatchResolver {
+    /** most names sent but not yet taken when not told */
+    public static final int DEFAULT_WINDOW = 1000;
+
+    /** sends the queries */
+    private DNSResolverEngine engine;
+
+    /** most names sent but not yet taken */
+    private int               window;
+
+    /** most queries sent a second, 0 for no limit */
+    private int               rate;
+
+    /**
+     * Creates a new DNSBatchResolver with a window of 1000 names and no
+     * limit on the rate.
+     *
+     * @param engine sends the queries
+     */
+    public DNSBatchResolver(DNSResolverEngine engine) {
+        this(engine, DEFAULT_WINDOW, 0);
+    }
+
+    /**
+     * Creates a new DNSBatchResolver.
+     *
+     * @param engine sends the queries
+     * @param window most names sent whose results haven't been taken yet
+     * @param rate most queries sent a second, 0 for no limit
+     */
+    public DNSBatchResolver(DNSResolverEngine engine, int window, int rate) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window " + window);
+        }
+        this.engine = engine;
+        this.window = window;
+        this.rate   = rate;
+    }
+
+    /**
+     * Looks up the A records of every name, asking for recursion.
+     *
+     * @param names the names to look up
+     * @return the batch, iterated over for each name's result in the order
+     *         they finish
+     */
+    public DNSBatch resolveAll(Iterable<String> names) {
+        return resolveAll(names, DNSRecordTypeEnum.A, DNSRecordClassEnum.IN,
+                          true);
+    }
+
+    /**
+     * Looks up the given type of record for every name.
+     *
+     * @param names the names to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @return the batch, iterated over for each name's result in the order
+     *         they finish
+     */
+    public DNSBatch resolveAll(Iterable<String> names, DNSRecordType type,
+                               DNSRecordClass recordClass,
+                               boolean recursionDesired) {
+        return new DNSBatch(engine, names, type, recordClass,
+                            recursionDesired, window, rate);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The outcome of looking up one name in a batch.
+ *
+ * @author Chris Blades
+ * @version 22/4/2010
+ */
+public class DNSBatchResult {
+    /** return code of a response for a name that doesn't exist */
+    private static final int NAME_ERROR = 3;
+
+    /** the name looked up */
+    private String         name;
+
+    /** how the lookup ended */
+    private DNSBatchStatus status;
+
+    /** the response, null if none arrived */
+    private DNSPacket      response;
+
+    /** why the lookup failed, null if a response arrived */
+    private Exception      cause;
+
+    /**
+     * Creates a new DNSBatchResult for a name a response arrived for,
+     * its status taken from the response's return code.
+     *
+     * @param name the name looked up
+     * @param response the response
+     */
+    public DNSBatchResult(String name, DNSPacket response) {
+        this.name     = name;
+        this.response = response;
+        int code = response.getHeader().getFlags().getReturnCode();
+        if (code == 0) {
+            this.status = DNSBatchStatus.ANSWERED;
+        } else if (code == NAME_ERROR) {
+            this.status = DNSBatchStatus.NO_SUCH_NAME;
+        } else {
+            this.status = DNSBatchStatus.SERVER_ERROR;
+        }
+    }
+
+    /**
+     * Creates a new DNSBatchResult for a name no response arrived for.
+     *
+     * @param name the name looked up
+     * @param cause why the lookup failed
+     */
+    public DNSBatchResult(String name, Exception cause) {
+        this.name   = name;
+        this.cause  = cause;
+        if (cause instanceof java.net.SocketTimeoutException) {
+            this.status = DNSBatchStatus.TIMED_OUT;
+        } else {
+            this.status = DNSBatchStatus.FAILED;
+        }
+    }
+
+    /**
+     * Returns the name looked up.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns how the lookup ended.
+     *
+     * @return the status
+     */
+    public DNSBatchStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Returns the response.
+     *
+     * @return the response, or null if none arrived
+     */
+    public DNSPacket getResponse() {
+        return this.response;
+    }
+
+    /**
+     * Returns why the lookup failed.
+     *
+     * @return the exception, or null if a response arrived
+     */
+    public Exception getCause() {
+        return this.cause;
+    }
+
+    public String toString() {
+        return name + " " + status;
+    }
+}
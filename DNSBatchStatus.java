@@ -0,0 +1,22 @@
+/**
+ * How the lookup of one name in a batch ended.
+ *
+ * @author Chris Blades
+ * @version 22/4/2010
+ */
+public enum DNSBatchStatus {
+    /** the server answered without error, possibly with no records */
+    ANSWERED,
+
+    /** the server said the name doesn't exist */
+    NO_SUCH_NAME,
+
+    /** the server answered with any other error, such as refusing */
+    SERVER_ERROR,
+
+    /** no response arrived in time */
+    TIMED_OUT,
+
+    /** the query couldn't be sent, or the name couldn't be encoded */
+    FAILED
+}
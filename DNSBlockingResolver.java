@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves names in a plain blocking style on top of the shared channels
+ * of a DNSAsyncResolver.  resolve() just waits for the asynchronous
+ * lookup, so no socket is opened per call and a blocked caller only
+ * holds a thread, not a socket.
+ *
+ * Lookups handed to submit() each run resolve() on their own virtual
+ * thread when the JVM has them (Java 21 and later), where waiting costs
+ * next to nothing, so thousands can block at once.  On older JVMs they
+ * run on a pool of at most 256 platform threads instead, the rest
+ * queueing for a free one.
+ *
+ * @author Chris Blades
+ * @version 21/4/2010
+ */
+public class DNSBlockingResolver {
+    /** most platform threads running lookups without virtual threads */
+    public static final int MAX_PLATFORM_THREADS = 256;
+
+    /** seconds an idle platform thread is kept before it's stopped */
+    private static final long IDLE_SECONDS = 60;
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), or null if this JVM
+     * has no virtual threads or won't let them be used
+     */
+    private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    /** does the lookups */
+    private DNSAsyncResolver resolver;
+
+    /** runs lookups handed to submit() */
+    private ExecutorService  executor;
+
+    /**
+     * Creates a new DNSBlockingResolver sending queries to the given
+     * server, running submitted lookups on virtual threads if it can.
+     *
+     * @param server the address of the DNS server
+     * @throws IOException if the channels can't be opened
+     */
+    public DNSBlockingResolver(SocketAddress server) throws IOException {
+        this(new DNSAsyncResolver(server), newLookupExecutor());
+    }
+
+    /**
+     * Creates a new DNSBlockingResolver.  Closing it closes both the
+     * resolver and the executor.
+     *
+     * @param resolver does the lookups
+     * @param executor runs lookups handed to submit()
+     */
+    public DNSBlockingResolver(DNSAsyncResolver resolver,
+                               ExecutorService executor) {
+        this.resolver = resolver;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns an executor that runs every task on a new virtual thread, or
+     * one that runs them on a pool of daemon platform threads if the JVM
+     * has no virtual threads.
+     *
+     * @return a new executor for lookups
+     */
+    public static ExecutorService newLookupExecutor() {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService)VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // worked when probed, fall back all the same
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_PLATFORM_THREADS, MAX_PLATFORM_THREADS,
+                IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "DNSBlockingResolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Returns wether newLookupExecutor() runs lookups on virtual threads.
+     * False on JVMs without them, and on Java 19 and 20 unless preview
+     * features are enabled.
+     *
+     * @return true if virtual threads are used
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Finds Executors.newVirtualThreadPerTaskExecutor() and makes sure it
+     * can be called, by calling it once.
+     *
+     * @return the method, or null if it's missing or can't be used
+     */
+    private static Method findVirtualExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod(
+                                            "newVirtualThreadPerTaskExecutor");
+            ((ExecutorService)virtual.invoke(null)).shutdown();
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            // missing, or a preview feature that isn't enabled
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a name, blocking the calling thread until the response
+     * arrives or the lookup times out.
+     *
+     * @param url the name to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @return the response
+     * @throws java.net.SocketTimeoutException if no response arrives in
+     *         time
+     * @throws InterruptedIOException if the thread is interrupted while
+     *         waiting, the lookup is cancelled
+     * @throws IOException if the query can't be sent
+     */
+    public DNSPacket resolve(String url, DNSRecordType type,
+                             DNSRecordClass recordClass,
+                             boolean recursionDesired) throws IOException {
+        CompletableFuture<DNSPacket> lookup =
+                resolver.resolveAsync(url, type, recordClass,
+                                      recursionDesired);
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            lookup.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted resolving "
+                                             + url);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new IOException("failed resolving " + url, cause);
+        }
+    }
+
+    /**
+     * Runs resolve() for a name on its own thread, virtual if the executor
+     * is the default one and the JVM has them.
+     *
+     * @param url the name to look up
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to ask the server to recurse
+     * @return a future holding the response, or the IOException resolve()
+     *         threw
+     */
+    public Future<DNSPacket> submit(final String url,
+                                    final DNSRecordType type,
+                                    final DNSRecordClass recordClass,
+                                    final boolean recursionDesired) {
+        return executor.submit(new Callable<DNSPacket>() {
+            public DNSPacket call() throws IOException {
+                return resolve(url, type, recordClass, recursionDesired);
+            }
+        });
+    }
+
+    /**
+     * Stops the executor and closes the resolver.  Lookups still waiting
+     * fail with an IOException.
+     */
+    public void close() {
+        executor.shutdown();
+        resolver.close();
+    }
+}
@@ -0,0 +1,99 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps direct ByteBuffers for sending and receiving datagrams so they can
+ * be used again instead of being allocated for every query.  A direct
+ * buffer can be handed to a DatagramChannel without the bytes first being
+ * copied out of the Java heap, but is expensive to create, which is why
+ * they're pooled.
+ *
+ * Buffers can be acquired and released from any thread.  A buffer must
+ * not be used after it's been released.
+ *
+ * @author Chris Blades
+ * @version 18/4/2010
+ */
+public class DNSBufferPool {
+    /** largest DNS message sent over UDP without extensions */
+    public static final int DEFAULT_BUFFER_SIZE = 512;
+
+    /** number of free buffers kept when no maximum is given */
+    private static final int DEFAULT_MAX_FREE = 64;
+
+    /** capacity of every buffer in the pool */
+    private int              bufferSize;
+
+    /** largest number of free buffers kept */
+    private int              maxFree;
+
+    /** free buffers */
+    private List<ByteBuffer> free;
+
+    /**
+     * Creates a new DNSBufferPool of 512 byte buffers keeping up to 64
+     * free ones.
+     */
+    public DNSBufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_FREE);
+    }
+
+    /**
+     * Creates a new DNSBufferPool.
+     *
+     * @param bufferSize the capacity of every buffer
+     * @param maxFree the largest number of free buffers to keep, buffers
+     *                released when this many are free are dropped
+     */
+    public DNSBufferPool(int bufferSize, int maxFree) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.maxFree    = maxFree;
+        this.free       = new ArrayList<ByteBuffer>();
+    }
+
+    /**
+     * Returns an empty buffer, position 0 and limit at its capacity.
+     *
+     * @return a direct buffer of getBufferSize() bytes
+     */
+    public ByteBuffer acquire() {
+        synchronized (free) {
+            if (!free.isEmpty()) {
+                return free.remove(free.size() - 1);
+            }
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Gives a buffer back to the pool.  Buffers that didn't come from a
+     * pool of the same size are ignored.
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()
+                || buffer.capacity() != bufferSize) {
+            return;
+        }
+        buffer.clear();
+        synchronized (free) {
+            if (free.size() < maxFree) {
+                free.add(buffer);
+            }
+        }
+    }
+
+    /**
+     * Returns the capacity of every buffer in this pool.
+     *
+     * @return the buffer size in bytes
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+}
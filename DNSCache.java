@@ -0,0 +1,312 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Remembers positive responses until their records expire, so a question
+ * asked again is answered without going to the server.  Responses are
+ * kept by the question they answer: the name, ignoring case and a
+ * trailing dot, the type and the class.
+ *
+ * A response is kept until the shortest time to live in its answer
+ * section runs out.  Every hit is a new packet parsed from the response
+ * as the server sent it, with its records' times to live lowered by the
+ * time spent in the cache, as a caching server would.  Only responses
+ * with a return code of 0 and at least one answer are kept; once the
+ * cache is full the least recently used response is dropped.
+ *
+ * @author Chris Blades
+ * @version 23/4/2010
+ */
+public class DNSCache {
+    /** largest number of responses held when not told */
+    public static final int DEFAULT_SIZE = 10000;
+
+    /** nanoseconds in a second */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** the cached responses, by question */
+    private Entries entries;
+
+    /**
+     * Creates a new DNSCache holding up to 10000 responses.
+     */
+    public DNSCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a new DNSCache holding up to the given number of responses.
+     *
+     * @param maxSize the largest number of responses to hold
+     */
+    public DNSCache(int maxSize) {
+        this.entries = new Entries(maxSize);
+    }
+
+    /**
+     * Returns the cached response to a question, with its times to live
+     * lowered by the time it's been cached.
+     *
+     * @param url the name asked about
+     * @param type the type of record asked for
+     * @param recordClass the class of record asked for
+     * @return a new packet holding the response, or null if none is cached
+     *         or it has expired
+     */
+    public DNSPacket get(String url, DNSRecordType type,
+                         DNSRecordClass recordClass) {
+        Key key = new Key(url, type, recordClass);
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expires >= 0) {
+                entries.remove(key);
+                return null;
+            }
+        }
+        return entry.toPacket(now);
+    }
+
+    /**
+     * Caches the response to a question if it's positive and has records
+     * that live for at least a second.
+     *
+     * @param url the name asked about
+     * @param type the type of record asked for
+     * @param recordClass the class of record asked for
+     * @param response the response from the server
+     * @return true if the response was cached
+     */
+    public boolean put(String url, DNSRecordType type,
+                       DNSRecordClass recordClass, DNSPacket response) {
+        DNSFlagsField flags = response.getHeader().getFlags();
+        List<DNSAnswer> answers = response.getAnswers();
+        if (flags.getReturnCode() != 0 || flags.isTruncated()
+                || answers.isEmpty()) {
+            return false;
+        }
+
+        int ttl = Integer.MAX_VALUE;
+        for (int i = 0; i < answers.size(); i++) {
+            ttl = Math.min(ttl, answers.get(i).getTTL());
+        }
+        if (ttl <= 0) {
+            return false;
+        }
+
+        Entry entry = new Entry(response, ttl);
+        synchronized (entries) {
+            entries.put(new Key(url, type, recordClass), entry);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of responses cached, some of which may have
+     * expired.
+     *
+     * @return the number of cached responses
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drops every cached response.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the 16 bit value of a type or class.
+     *
+     * @param o a type or class
+     * @return its value as it appears on the wire
+     */
+    private static int code(DNSObject o) {
+        byte[] bytes = o.serialize();
+        return ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+    }
+
+    /**
+     * Identifies a cached response by the question it answers.
+     */
+    private static class Key {
+        /**
+         * the name asked about, without a trailing dot and with A to Z in
+         * lower case
+         */
+        private String url;
+
+        /** the type of record asked for, as it appears on the wire */
+        private int    type;
+
+        /** the class of record asked for, as it appears on the wire */
+        private int    recordClass;
+
+        /**
+         * Creates a new Key for the given question.
+         *
+         * @param url the name asked about
+         * @param type the type of record asked for
+         * @param recordClass the class of record asked for
+         */
+        public Key(String url, DNSRecordType type,
+                   DNSRecordClass recordClass) {
+            String name = url.endsWith(".")
+                        ? url.substring(0, url.length() - 1) : url;
+            this.url         = lowerCase(name);
+            this.type        = code(type);
+            this.recordClass = code(recordClass);
+        }
+
+        /**
+         * Returns a name with A to Z lower cased, the only letters DNS
+         * matches without regard to case.  Anything else is left as it is,
+         * whatever the default locale.
+         *
+         * @param name the name
+         * @return name with ASCII letters in lower case
+         */
+        private static String lowerCase(String name) {
+            char[] key = name.toCharArray();
+            for (int i = 0; i < key.length; i++) {
+                char c = key[i];
+                if (c >= 'A' && c <= 'Z') {
+                    key[i] = (char)(c + ('a' - 'A'));
+                }
+            }
+            return new String(key);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            return type == other.type && recordClass == other.recordClass
+                && url.equals(other.url);
+        }
+
+        public int hashCode() {
+            int hash = url.hashCode();
+            hash = hash * 31 + type;
+            return hash * 31 + recordClass;
+        }
+    }
+
+    /**
+     * A cached response, kept in DNS format exactly as it was received so
+     * records the objects don't know are held as the server sent them.
+     * Every hit parses it afresh, so nothing handed out is shared with the
+     * cache, another hit or the response that was cached.
+     */
+    private static class Entry {
+        /** record type of EDNS OPT records, whose TTL field isn't a TTL */
+        private static final int OPT = 41;
+
+        /** System.nanoTime() when the response was cached */
+        private long   cached;
+
+        /** System.nanoTime() when the response expires */
+        private long   expires;
+
+        /** the response in DNS format */
+        private byte[] message;
+
+        /**
+         * Creates a new Entry for a response, expiring after the given
+         * number of seconds.
+         *
+         * @param response the response to cache
+         * @param ttl seconds until the response expires
+         */
+        public Entry(DNSPacket response, int ttl) {
+            this.message = encode(response);
+            this.cached  = System.nanoTime();
+            this.expires = cached + ttl * NANOS_PER_SECOND;
+        }
+
+        /**
+         * Returns a copy of a response in DNS format, the bytes it was
+         * parsed from if there are any so nothing is lost re-encoding it.
+         *
+         * @param response the response to copy
+         * @return the response in DNS format
+         */
+        private static byte[] encode(DNSPacket response) {
+            if (response instanceof DNSPacketParserDecorator) {
+                return ((DNSPacketParserDecorator)response).getBytes();
+            }
+            return response.serialize().clone();
+        }
+
+        /**
+         * Parses a new response from this entry, lowering every time to
+         * live by the seconds spent in the cache.
+         *
+         * @param now System.nanoTime() now
+         * @return the response
+         */
+        public DNSPacket toPacket(long now) {
+            int elapsed = (int)((now - cached) / NANOS_PER_SECOND);
+
+            DNSPacketParserDecorator packet =
+                        new DNSPacketParserDecorator(new ByteCursor(message));
+            packet.parse();
+            lower(packet.getAnswers(), elapsed);
+            lower(packet.getAuthoritativeAnswers(), elapsed);
+            lower(packet.getAdditionalAnswers(), elapsed);
+            return packet;
+        }
+
+        /**
+         * Lowers the time to live of every record in a section, but not
+         * below 0.  OPT records are left alone.
+         *
+         * @param section the records of a section
+         * @param elapsed seconds spent in the cache
+         */
+        private static void lower(List<DNSAnswer> section, int elapsed) {
+            for (int i = 0; i < section.size(); i++) {
+                DNSAnswer answer = section.get(i);
+                if (code(answer.getType()) != OPT) {
+                    answer.setTTL(Math.max(0, answer.getTTL() - elapsed));
+                }
+            }
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order that drops the least recently used
+     * response once it holds more than its maximum.
+     */
+    private static class Entries extends LinkedHashMap<Key, Entry> {
+        /** the largest number of responses to hold */
+        private int maxSize;
+
+        /**
+         * Creates a new Entries holding at most maxSize responses.
+         *
+         * @param maxSize the largest number of responses to hold
+         */
+        public Entries(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(
+                java.util.Map.Entry<Key, Entry> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
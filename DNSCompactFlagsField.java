@@ -0,0 +1,243 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The DNSFlagsField of a DNSCompactHeader.  Holds no state of its own,
+ * every flag is read from and written to the header's 16 bit flags value.
+ *
+ * @author Chris Blades
+ * @version 8/4/2010
+ */
+public class DNSCompactFlagsField implements DNSFlagsField {
+    /** response bit */
+    private static final int RESPONSE            = 0x8000;
+
+    /** authoritative bit */
+    private static final int AUTHORITATIVE       = 0x0400;
+
+    /** truncated bit */
+    private static final int TRUNCATED           = 0x0200;
+
+    /** recursion desired bit */
+    private static final int RECURSION_DESIRED   = 0x0100;
+
+    /** recursion available bit */
+    private static final int RECURSION_AVAILABLE = 0x0080;
+
+    /** the header holding the flags */
+    private DNSCompactHeader header;
+
+    /**
+     * Creates a new DNSCompactFlagsField for the given header.
+     *
+     * @param header the header holding the flags
+     */
+    DNSCompactFlagsField(DNSCompactHeader header) {
+        this.header = header;
+    }
+
+    /**
+     * Returns wether the given bit is set.
+     *
+     * @param bit mask of the bit
+     * @return true if the bit is set
+     */
+    private boolean isSet(int bit) {
+        return (header.getFlagsValue() & bit) != 0;
+    }
+
+    /**
+     * Sets or clears the given bit.
+     *
+     * @param bit mask of the bit
+     * @param set wether to set the bit
+     */
+    private void set(int bit, boolean set) {
+        int flags = header.getFlagsValue();
+        header.setFlagsValue(set ? flags | bit : flags & ~bit);
+    }
+
+    /**
+     * Returns wether the response flag is clear.
+     *
+     * @return true if this flags field represents a request
+     */
+    public boolean isRequest() {
+        return !isSet(RESPONSE);
+    }
+
+    /**
+     * Returns the opcode vale of this flags field
+     *
+     * @return the opcode value of this flags field
+     */
+    public DNSOpcode getOpcode() {
+        DNSOpcode opcode = DNSOpcodeEnum.forValue(
+                                    (header.getFlagsValue() >>> 11) & 0x0F);
+        return opcode != null ? opcode : DNSOpcodeEnum.QUERY;
+    }
+
+    /**
+     * Returns wether the authoritative bit is set in this flags field.
+     *
+     * @return the state of the authoritative bit
+     */
+    public boolean isAuthorative() {
+        return isSet(AUTHORITATIVE);
+    }
+
+    /**
+     * Returns wether the truncated bit is set in this flags field.
+     *
+     * @return the state of the truncated bit
+     */
+    public boolean isTruncated() {
+        return isSet(TRUNCATED);
+    }
+
+    /**
+     * Returns wether the recursion desired bit is set in this flags field.
+     *
+     * @return the state of the recursion desired bit.
+     */
+    public boolean recursionDesired() {
+        return isSet(RECURSION_DESIRED);
+    }
+
+    /**
+     * Returns wether the recursion available bit is set in this flags field.
+     *
+     * @return the state of the recursion available bit.
+     */
+    public boolean recursionAvailable() {
+        return isSet(RECURSION_AVAILABLE);
+    }
+
+    /**
+     * Returns the return code value of the flags field.
+     *
+     * @return the return code of this flags field
+     */
+    public int getReturnCode() {
+        return header.getFlagsValue() & 0x0F;
+    }
+
+    /**
+     * Sets wether this flags field represents a request.
+     *
+     * @param request wether this flags field is a request.
+     */
+    public void setIsRequest(boolean request) {
+        set(RESPONSE, !request);
+    }
+
+    /**
+     * Sets the opcode of this flags field.
+     *
+     * @param opcode the new Opcode of this flags field.
+     */
+    public void setOpcode(DNSOpcode opcode) {
+        int value = opcode.serialize()[0] & 0x0F;
+        header.setFlagsValue((header.getFlagsValue() & ~0x7800)
+                             | (value << 11));
+    }
+
+    /**
+     * sets the state of the authoritative bit.
+     *
+     * @param authoritative the state of the authoritative bit
+     */
+    public void setAuthoritative(boolean authoritative) {
+        set(AUTHORITATIVE, authoritative);
+    }
+
+    /**
+     * sets the state of the truncated bit.
+     *
+     * @param truncated the state of the truncated bit
+     */
+    public void setTruncated(boolean truncated) {
+        set(TRUNCATED, truncated);
+    }
+
+    /**
+     * sets the state of the recursion desired bit.
+     *
+     * @param recursionDesired the state of the recursion desired bit
+     */
+    public void setRecursionDesired(boolean recursionDesired) {
+        set(RECURSION_DESIRED, recursionDesired);
+    }
+
+    /**
+     * sets the state of the recursion available bit.
+     *
+     * @param recursionAvailable the state of the recursion available bit
+     */
+    public void setRecursionAvailable(boolean recursionAvailable) {
+        set(RECURSION_AVAILABLE, recursionAvailable);
+    }
+
+    /**
+     * Sets the return code of this flags field.
+     *
+     * @param code the new return code of this flags field
+     */
+    public void setReturnCode(int code) {
+        header.setFlagsValue((header.getFlagsValue() & ~0x0F) | (code & 0x0F));
+    }
+
+    /**
+     * Return the length of the DNS Flag Field, which is a constant.
+     *
+     * @return length of a flag field
+     */
+    public int getLength() {
+        return DNSFlagsFieldImpl.FLAGS_LENGTH;
+    }
+
+    /**
+     * Returns the modification count of the header these flags are part
+     * of, since that's where they're stored.
+     *
+     * @return the modification count of the header
+     */
+    public int getModificationCount() {
+        return header.getModificationCount();
+    }
+
+    /**
+     * Returns the flags field in DNS format.
+     *
+     * @return a byte array representing this flags field
+     */
+    public byte[] serialize() {
+        int flags = header.getFlagsValue();
+        return new byte[]{(byte)(flags >>> 8), (byte)flags};
+    }
+
+    /**
+     * Writes the flags field into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short)header.getFlagsValue());
+    }
+
+    /**
+     * Returns a mapping of the state values of this flags field.
+     *
+     * @return the state values of this flags field
+     */
+    public Map stateValues() {
+        Map<Object, Object> values = new Map<Object, Object>();
+        values.put("Is Request", isRequest());
+        values.put("Opcode", getOpcode().stateValues());
+        values.put("Authoratative", isAuthorative());
+        values.put("Truncated", isTruncated());
+        values.put("Recursion Desired", recursionDesired());
+        values.put("Recursion Available", recursionAvailable());
+        values.put("Return Code", getReturnCode());
+        return values;
+    }
+}
@@ -0,0 +1,330 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A DNSHeader that keeps every field, flags included, as primitives and
+ * can decode the 12 header bytes straight into them.  Decoding doesn't
+ * allocate anything, so one DNSCompactHeader can be reused to look at the
+ * header of every response received, including the ones that end up
+ * being thrown away.
+ *
+ * @author Chris Blades
+ * @version 8/4/2010
+ */
+public class DNSCompactHeader extends AbstractDNSObject implements DNSHeader {
+    /** the length of a DNS header */
+    public static final int HEADER_LENGTH = 12;
+
+    /** a numeric identifier used to pair questions with responses */
+    private int                  identifier;
+
+    /** the flags field as it appears on the wire */
+    private int                  flags;
+
+    /** the number of questions a packet with this header would contain */
+    private int                  numQuestions;
+
+    /** the number of answrs a packet with this header would contain */
+    private int                  numAnswers;
+
+    /** 
+     * the number of authority answers a packet with this header would contain 
+     */
+    private int                  numAuthorityAnswers;
+
+    /** 
+     * the number of additional answers a packet with this header would contain 
+     */
+    private int                  numAdditionalAnswers;
+
+    /** DNSFlagsField that reads and writes flags */
+    private DNSCompactFlagsField flagsField;
+
+    /**
+     * Creates a new DNSCompactHeader with every field set to 0.
+     */
+    public DNSCompactHeader() {
+        this.flagsField = new DNSCompactFlagsField(this);
+    }
+
+    /**
+     * Decodes the header at the current position of the byte buffer,
+     * leaving it positioned after the header.
+     *
+     * @param bytes the byte buffer to decode
+     */
+    public void decode(ByteCursor bytes) {
+        identifier           = bytes.readU16();
+        flags                = bytes.readU16();
+        numQuestions         = bytes.readU16();
+        numAnswers           = bytes.readU16();
+        numAuthorityAnswers  = bytes.readU16();
+        numAdditionalAnswers = bytes.readU16();
+        markChanged();
+    }
+
+    /**
+     * Decodes the header starting at offset in the given array.
+     *
+     * @param bytes array holding a message
+     * @param offset index of the first byte of the message
+     */
+    public void decode(byte[] bytes, int offset) {
+        if (bytes.length - offset < HEADER_LENGTH) {
+            throw new DNSParseException("truncated header", bytes.length);
+        }
+        identifier           = readU16(bytes, offset);
+        flags                = readU16(bytes, offset + 2);
+        numQuestions         = readU16(bytes, offset + 4);
+        numAnswers           = readU16(bytes, offset + 6);
+        numAuthorityAnswers  = readU16(bytes, offset + 8);
+        numAdditionalAnswers = readU16(bytes, offset + 10);
+        markChanged();
+    }
+
+    /**
+     * Reads an unsigned 16 bit value in network order.
+     *
+     * @param bytes array to read from
+     * @param index index of the first byte
+     * @return the two bytes as an unsigned value
+     */
+    private static int readU16(byte[] bytes, int index) {
+        return ((bytes[index] & 0xFF) << 8) | (bytes[index + 1] & 0xFF);
+    }
+
+    /**
+     * Returns the flags field as it appears on the wire.
+     *
+     * @return the 16 bit flags field
+     */
+    public int getFlagsValue() {
+        return this.flags;
+    }
+
+    /**
+     * Replaces the flags field with the given wire value.
+     *
+     * @param flags the new 16 bit flags field
+     */
+    public void setFlagsValue(int flags) {
+        this.flags = flags & 0xFFFF;
+        markChanged();
+    }
+
+    /**
+     * Returns the identifier of this header.
+     *
+     * @return this headers identifier
+     */
+    public int getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * Returns the flags field of this header.  The same object is returned
+     * every time and reflects later changes to this header.
+     *
+     * @return the flags field of this header.
+     */
+    public DNSFlagsField getFlags() {
+        return this.flagsField;
+    }
+
+    /**
+     * Returns the number of questions in a packet with this header.
+     *
+     * @return the number of questions field
+     */
+    public int getNumQuestions() {
+        return this.numQuestions;
+    }
+
+    /**
+     * Returns the number of answers in a packet with this header.
+     *
+     * @return the number of answers field
+     */
+    public int getNumAnswers() {
+        return this.numAnswers;
+    }
+
+    /**
+     * Returns the number of authority answers in a packet with this header.
+     *
+     * @return the number of authority answers field
+     */
+    public int getNumAuthorityAnswers() {
+        return this.numAuthorityAnswers;
+    }
+
+    /**
+     * Returns the number of additional answers in a packet with this header.
+     *
+     * @return the number of additional answers field
+     */
+    public int getNumAdditionalAnswers() {
+        return this.numAdditionalAnswers;
+    }
+
+    /**
+     * Sets the identifier of this header.
+     *
+     * @param identifier the new identifier of this header
+     */
+    public void setIdentifier(int identifier) {
+        this.identifier = identifier & 0xFFFF;
+        markChanged();
+    }
+
+    /**
+     * Copies the given flags field into this header.
+     *
+     * @param flags the new flags field of this header.
+     */
+    public void setFlags(DNSFlagsField flags) {
+        byte[] bytes = flags.serialize();
+        setFlagsValue(((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF));
+    }
+
+    /**
+     * Sets the number of questions field of this header.
+     *
+     * @param numQuestions the new number of questions
+     */
+    public void setNumQuestions(int numQuestions) {
+        this.numQuestions = numQuestions;
+        markChanged();
+    }
+
+    /**
+     * Sets the number of answers field of this header.
+     *
+     * @param numAnswers the new number of answers
+     */
+    public void setNumAnswers(int numAnswers) {
+        this.numAnswers = numAnswers;
+        markChanged();
+    }
+
+    /**
+     * Sets the number of authority answers field of this header.
+     *
+     * @param numAuthorityAnswers the new number of authority answers
+     */
+    public void setNumAuthorityAnswers(int numAuthorityAnswers) {
+        this.numAuthorityAnswers = numAuthorityAnswers;
+        markChanged();
+    }
+
+    /**
+     * Sets the number of additional answers field of this header.
+     *
+     * @param numAdditionalAnswers the new number of additional answers
+     */
+    public void setNumAdditionalAnswers(int numAdditionalAnswers) {
+        this.numAdditionalAnswers = numAdditionalAnswers;
+        markChanged();
+    }
+
+    /**
+     * Returns the length of this object when serialized.
+     *
+     * @return the length of this object when serialized as a DNS header
+     */
+    public int getLength() {
+        return HEADER_LENGTH;
+    }
+
+    /**
+     * Sets every field, flags included, back to 0.
+     */
+    public void reset() {
+        identifier           = 0;
+        flags                = 0;
+        numQuestions         = 0;
+        numAnswers           = 0;
+        numAuthorityAnswers  = 0;
+        numAdditionalAnswers = 0;
+        markChanged();
+    }
+
+    /**
+     * Serialize should translate the DNSObject into an array of bytes
+     * as per the DNS protocol.
+     *
+     * @return a byte array representing this DNSObject
+     */
+    public byte[] serialize() {
+        generateSerialized();
+        return serialized;
+    }
+
+    /**
+     * Writes this header into the given buffer straight from its fields.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short)identifier);
+        buffer.putShort((short)flags);
+        buffer.putShort((short)numQuestions);
+        buffer.putShort((short)numAnswers);
+        buffer.putShort((short)numAuthorityAnswers);
+        buffer.putShort((short)numAdditionalAnswers);
+    }
+
+    /**
+     * Should return a description of the state of this DNSObject in the
+     * format [label][value]
+     * @return descriptions of the state of this DNSObject
+     */
+    public Map stateValues() {
+        generateValues();
+        return values;
+    }
+
+    /**
+     * Re-generates serialized if this header has changed since it was last
+     * serialized.
+     */
+    protected void generateSerialized() {
+        if (serializedChanged) {
+            //
+            // generate serialized
+            //
+            serialized = new byte[HEADER_LENGTH];
+            serialized[0]  = (byte)(identifier >>> 8);
+            serialized[1]  = (byte)(identifier);
+            serialized[2]  = (byte)(flags >>> 8);
+            serialized[3]  = (byte)(flags);
+            serialized[4]  = (byte)(numQuestions >>> 8);
+            serialized[5]  = (byte)(numQuestions);
+            serialized[6]  = (byte)(numAnswers >>> 8);
+            serialized[7]  = (byte)(numAnswers);
+            serialized[8]  = (byte)(numAuthorityAnswers >>> 8);
+            serialized[9]  = (byte)(numAuthorityAnswers);
+            serialized[10] = (byte)(numAdditionalAnswers >>> 8);
+            serialized[11] = (byte)(numAdditionalAnswers);
+
+            serializedChanged = false;
+        }
+    }
+
+    /**
+     * Re-generates values if this header has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (valuesChanged) {
+            resetValues();
+            values.put("Identifier", identifier);
+            values.put("Flags", flagsField.stateValues());
+            values.put("Number of Questions", numQuestions);
+            values.put("Number of Answers", numAnswers);
+            values.put("Number of Authority Answers", numAuthorityAnswers);
+            values.put("Number of Additional Answers", numAdditionalAnswers);
+
+            valuesChanged = false;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends and receives DNS messages over UDP through a DatagramChannel.
+ * Messages are encoded with writeTo() straight into a pooled direct
+ * buffer, and received into one, so no byte array is created for a
+ * datagram and nothing is copied between the Java heap and native memory.
+ *
+ * The channel is blocking unless it's configured otherwise through
+ * getChannel().
+ *
+ * @author Chris Blades
+ * @version 18/4/2010
+ */
+public class DNSDatagramTransport {
+    /** pool shared by transports created without one */
+    private static final DNSBufferPool SHARED_BUFFERS = new DNSBufferPool();
+
+    /** channel every message goes through */
+    private DatagramChannel channel;
+
+    /** buffers messages are encoded into and received into */
+    private DNSBufferPool   buffers;
+
+    /**
+     * Creates a new DNSDatagramTransport on a new channel bound to any
+     * free local port, using the shared buffer pool.
+     *
+     * @throws IOException if the channel can't be opened
+     */
+    public DNSDatagramTransport() throws IOException {
+        this(SHARED_BUFFERS);
+    }
+
+    /**
+     * Creates a new DNSDatagramTransport on a new channel bound to any
+     * free local port.
+     *
+     * @param buffers the pool to take buffers from
+     * @throws IOException if the channel can't be opened
+     */
+    public DNSDatagramTransport(DNSBufferPool buffers) throws IOException {
+        this(DatagramChannel.open(), buffers);
+        channel.bind(new InetSocketAddress(0));
+    }
+
+    /**
+     * Creates a new DNSDatagramTransport on the given channel.
+     *
+     * @param channel the channel to send and receive through
+     * @param buffers the pool to take buffers from
+     */
+    public DNSDatagramTransport(DatagramChannel channel,
+                                DNSBufferPool buffers) {
+        this.channel = channel;
+        this.buffers = buffers;
+    }
+
+    /**
+     * Sends a packet to the given server.
+     *
+     * @param packet the packet to send
+     * @param server the address to send it to
+     * @return false if the channel is non-blocking and had no room for the
+     *         datagram, so nothing was sent
+     * @throws IOException if the datagram can't be sent
+     */
+    public boolean send(DNSPacket packet, SocketAddress server)
+                                                        throws IOException {
+        ByteBuffer buffer = buffers.acquire();
+        try {
+            packet.writeTo(buffer);
+            buffer.flip();
+            return channel.send(buffer, server) > 0;
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Sends a query for the given question to the given server, encoded
+     * by DNSFactory.writeQuery() from its cached copy of the question.
+     *
+     * @param factory the factory to encode the query with
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param identifier the identifier of the query
+     * @param server the address to send it to
+     * @return false if the channel is non-blocking and had no room for the
+     *         datagram, so nothing was sent
+     * @throws IOException if the datagram can't be sent
+     */
+    public boolean sendQuery(DNSFactory factory, String url,
+                             DNSRecordType type, DNSRecordClass recordClass,
+                             boolean recursionDesired, int identifier,
+                             SocketAddress server) throws IOException {
+        ByteBuffer buffer = buffers.acquire();
+        try {
+            factory.writeQuery(url, type, recordClass, recursionDesired,
+                               identifier, buffer);
+            buffer.flip();
+            return channel.send(buffer, server) > 0;
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Receives one datagram into a pooled buffer.  The buffer is returned
+     * flipped, ready to be read, and has to be given back with release()
+     * once it's been read.  Anything past the pool's buffer size is
+     * dropped, the same as with a DatagramSocket.
+     *
+     * @return the received datagram, or null if the channel is
+     *         non-blocking and nothing was waiting
+     * @throws IOException if receiving fails
+     */
+    public ByteBuffer receive() throws IOException {
+        ByteBuffer buffer = buffers.acquire();
+        SocketAddress from;
+        try {
+            from = channel.receive(buffer);
+        } catch (IOException e) {
+            buffers.release(buffer);
+            throw e;
+        }
+        if (from == null) {
+            buffers.release(buffer);
+            return null;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Receives one datagram and parses it into a packet.  The buffer it
+     * was received into is released before returning; every section is
+     * parsed first, so the packet holds no reference to it.
+     *
+     * @return the parsed packet, or null if the channel is non-blocking
+     *         and nothing was waiting
+     * @throws IOException if receiving fails
+     * @throws DNSParseException if the datagram isn't a valid message
+     */
+    public DNSPacketParserDecorator receivePacket() throws IOException {
+        ByteBuffer buffer = receive();
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            DNSPacketParserDecorator packet =
+                new DNSPacketParserDecorator(new ByteCursor(buffer));
+            packet.parse();
+            return packet;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Gives a buffer returned by receive() back to the pool.
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(ByteBuffer buffer) {
+        buffers.release(buffer);
+    }
+
+    /**
+     * Returns the channel this transport sends and receives through.
+     *
+     * @return the channel
+     */
+    public DatagramChannel getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException if closing the channel fails
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,10 +1,50 @@
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+
 /**
  * Creates new DNSPackets containing a query.
  *
+ * Also keeps a cache of encoded queries, one per question asked.  Once a
+ * question has been encoded, producing another query for it is a copy of
+ * the cached bytes with the identifier written over the first two.  The
+ * cache holds at most a fixed number of questions, dropping the least
+ * recently used one when it's full.
+ *
+ * A query always carries the name exactly as the caller spelled it, as
+ * DNSNamePool never hands back a name in another spelling, so questions
+ * are cached by their spelling too: names differing only in case get
+ * queries of their own.
+ *
  * @author Chris Blades
  * @version 20/3/10
  */
 public class DNSFactory {
+    /** identifier given to packets when none is asked for */
+    private static final int DEFAULT_IDENTIFIER = 1024;
+
+    /** number of encoded queries cached when no size is given */
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /** encoded queries, least recently used first */
+    private TemplateCache templates;
+
+    /**
+     * Creates a new DNSFactory caching up to 1024 encoded queries.
+     */
+    public DNSFactory() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new DNSFactory caching up to the given number of encoded
+     * queries.
+     *
+     * @param cacheSize the largest number of queries to cache, 0 to cache
+     *                  none
+     */
+    public DNSFactory(int cacheSize) {
+        this.templates = new TemplateCache(cacheSize);
+    }
 
     /**
      * Return a new DNSPacket with a question containing the given url
@@ -15,34 +55,230 @@ public class DNSFactory {
      *                         in the returned DNSpacket.
      */
     public DNSPacket getPacket(String url, boolean recursionDesired) {
-        DNSPacket packet = new DNSPacketImpl();
+        return getPacket(url, DNSRecordTypeEnum.A, DNSRecordClassEnum.IN,
+                         recursionDesired, DEFAULT_IDENTIFIER);
+    }
+
+    /**
+     * Return a new DNSPacket with a question for the given url, type and
+     * class, recursion set according to recursionDesired and the given
+     * identifier.  The packet is taken from the calling thread's
+     * DNSObjectPool and may be released into it once it's done with.
+     *
+     * @param url the name asked about in the returned DNSPacket
+     * @param type the type of record asked for
+     * @param recordClass the class of record asked for
+     * @param recursionDesired wether to set the recursion desired flag
+     *                         in the returned DNSpacket.
+     * @param identifier the identifier of the returned DNSPacket
+     */
+    public DNSPacket getPacket(String url, DNSRecordType type,
+                               DNSRecordClass recordClass,
+                               boolean recursionDesired, int identifier) {
+        DNSObjectPool pool = DNSObjectPool.get();
+        DNSPacket packet = pool.getPacket();
+
+        // build header, its flags start out reset
+        DNSHeader header = pool.getHeader();
+        header.setIdentifier(identifier);
+        header.setNumQuestions(1);
 
         // flags field
-        DNSFlagsField flags = new DNSFlagsFieldImpl();
+        DNSFlagsField flags = header.getFlags();
         flags.setIsRequest(true);
         // set recursion desired according to recursionDesired
         flags.setRecursionDesired(recursionDesired);
         flags.setOpcode(DNSOpcodeEnum.QUERY);
 
-        // build header, insert flags
-        DNSHeader header = new DNSHeaderImpl();
-        header.setIdentifier(1024);
-        header.setFlags(flags);
-        header.setNumQuestions(1);
-
         // build question
-        DNSQuestion question = new DNSQuestionImpl();
+        DNSQuestion question = pool.getQuestion();
         DNSUrl questionUrl = new DNSUrlImpl(url);
-        DNSRecordType type = DNSRecordTypeEnum.A;
-        DNSRecordClass clss = DNSRecordClassEnum.IN;
 
         question.setName(questionUrl);
         question.setType(type);
-        question.setClass(clss);
+        question.setClass(recordClass);
 
         packet.setHeader(header);
         packet.setQuestion(question);
-    
+
         return packet;
     }
+
+    /**
+     * Returns an encoded query for the given question with the given
+     * identifier, ready to send.  The first query for a question builds a
+     * packet and caches its bytes, after that the cached bytes are copied.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param identifier the identifier of the query
+     * @return the query serialized as per the DNS protocol
+     */
+    public byte[] getQuery(String url, DNSRecordType type,
+                           DNSRecordClass recordClass,
+                           boolean recursionDesired, int identifier) {
+        byte[] template = getTemplate(url, type, recordClass,
+                                      recursionDesired);
+        byte[] query = template.clone();
+        query[0] = (byte)(identifier >>> 8);
+        query[1] = (byte)identifier;
+        return query;
+    }
+
+    /**
+     * Writes an encoded query for the given question with the given
+     * identifier into buffer at its position, the same as getQuery()
+     * without creating an array.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param identifier the identifier of the query
+     * @param buffer the buffer to write into
+     */
+    public void writeQuery(String url, DNSRecordType type,
+                           DNSRecordClass recordClass,
+                           boolean recursionDesired, int identifier,
+                           ByteBuffer buffer) {
+        byte[] template = getTemplate(url, type, recordClass,
+                                      recursionDesired);
+        int start = buffer.position();
+        buffer.put(template);
+        buffer.putShort(start, (short)identifier);
+    }
+
+    /**
+     * Returns the cached encoded query for the given question, encoding
+     * and caching it if it isn't cached.  The identifier in the returned
+     * bytes is meaningless and the array must not be modified.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @return the encoded query
+     */
+    private byte[] getTemplate(String url, DNSRecordType type,
+                               DNSRecordClass recordClass,
+                               boolean recursionDesired) {
+        TemplateKey key = new TemplateKey(url, type, recordClass,
+                                          recursionDesired);
+        byte[] template;
+        synchronized (templates) {
+            template = templates.get(key);
+        }
+        if (template == null) {
+            // encode outside the lock, two threads may both encode the
+            // same question but they'll produce the same bytes
+            DNSPacket packet = getPacket(url, type, recordClass,
+                                         recursionDesired, 0);
+            template = packet.serialize();
+            DNSObjectPool.get().release(packet);
+            synchronized (templates) {
+                templates.put(key, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Returns the number of encoded queries currently cached.
+     *
+     * @return the number of cached queries
+     */
+    public int getCacheSize() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    /**
+     * Identifies a cached query by everything in it but its identifier.
+     */
+    private static class TemplateKey {
+        /** the name asked about, as the caller spelled it */
+        private String  url;
+
+        /** the type of record asked for, as it appears on the wire */
+        private int     type;
+
+        /** the class of record asked for, as it appears on the wire */
+        private int     recordClass;
+
+        /** wether recursion is desired */
+        private boolean recursionDesired;
+
+        /**
+         * Creates a new TemplateKey for the given question.
+         *
+         * @param url the name asked about
+         * @param type the type of record asked for
+         * @param recordClass the class of record asked for
+         * @param recursionDesired wether recursion is desired
+         */
+        public TemplateKey(String url, DNSRecordType type,
+                           DNSRecordClass recordClass,
+                           boolean recursionDesired) {
+            this.url              = url;
+            this.type             = code(type);
+            this.recordClass      = code(recordClass);
+            this.recursionDesired = recursionDesired;
+        }
+
+        /**
+         * Returns the 16 bit value of a type or class.
+         *
+         * @param o a type or class
+         * @return its value as it appears on the wire
+         */
+        private static int code(DNSObject o) {
+            byte[] bytes = o.serialize();
+            return ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey other = (TemplateKey)o;
+            return type == other.type && recordClass == other.recordClass
+                && recursionDesired == other.recursionDesired
+                && url.equals(other.url);
+        }
+
+        public int hashCode() {
+            int hash = url.hashCode();
+            hash = hash * 31 + type;
+            hash = hash * 31 + recordClass;
+            return recursionDesired ? hash : ~hash;
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order that drops the least recently used
+     * query once it holds more than its maximum.
+     */
+    private static class TemplateCache
+                            extends LinkedHashMap<TemplateKey, byte[]> {
+        /** the largest number of queries to hold */
+        private int maxSize;
+
+        /**
+         * Creates a new TemplateCache holding at most maxSize queries.
+         *
+         * @param maxSize the largest number of queries to hold
+         */
+        public TemplateCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(
+                java.util.Map.Entry<TemplateKey, byte[]> eldest) {
+            return size() > maxSize;
+        }
+    }
 }
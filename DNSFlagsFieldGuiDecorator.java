@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import javax.swing.tree.DefaultMutableTreeNode;
 
 /**
@@ -221,6 +222,15 @@ public class DNSFlagsFieldGuiDecorator extends DefaultMutableTreeNode
         return flags.getLength();
     }
 
+    /**
+     * Returns the modification count of the underlying DNSFlagsField.
+     *
+     * @return the modification count of this DNSFlagsField
+     */
+    public int getModificationCount() {
+        return flags.getModificationCount();
+    }
+
     /**
      * Returns a serialized version of this DNSFlagsField as per
      * DNS protocol
@@ -230,6 +240,16 @@ public class DNSFlagsFieldGuiDecorator extends DefaultMutableTreeNode
     public byte[] serialize() {
         return flags.serialize();
     }
+
+    /**
+     * Writes the serialized version of the wrapped DNSFlagsField into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        flags.writeTo(buffer);
+    }
     
     /**
      * Returns a mapping of the state values of this DNSFlagsField.
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of DNSFlagsField.
  *
@@ -36,6 +38,14 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public DNSFlagsFieldImpl() {
         serialized              = new byte[FLAGS_LENGTH];
+        reset();
+    }
+
+    /**
+     * Sets all flags to false, the return code to 0 and the opcode to
+     * QUERY.
+     */
+    public void reset() {
         this.request            = false;
         this.opcode             = DNSOpcodeEnum.QUERY;
         this.authoritative      = false;
@@ -43,6 +53,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
         this.recursionDesired   = false;
         this.recursionAvailable = false;
         this.returnCode         = 0;
+        markChanged();
     }
     
     /**
@@ -115,7 +126,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setIsRequest(boolean request) {
         this.request = request;
-        changed = true;
+        markChanged();
     }
     /**
      * Sets the opcode of this flags field.
@@ -124,7 +135,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setOpcode(DNSOpcode opcode) {
         this.opcode = opcode;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -134,7 +145,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setAuthoritative(boolean authoritative) {
         this.authoritative = authoritative;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -144,7 +155,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setTruncated(boolean truncated) {
         this.truncated = truncated;
-        changed = true;
+        markChanged();
     }
     /**
      * sets the state of the recursion desired bit.
@@ -153,7 +164,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setRecursionDesired(boolean recursionDesired) {
         this.recursionDesired = recursionDesired;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -163,7 +174,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setRecursionAvailable(boolean recursionAvailable) {
         this.recursionAvailable = recursionAvailable;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -173,7 +184,7 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      */
     public void setReturnCode(int code) {
         this.returnCode = code;
-        changed = true;
+        markChanged();
     }
  
     /**
@@ -192,65 +203,87 @@ public class DNSFlagsFieldImpl extends AbstractDNSObject
      * @return a byte array representing this DNSObject
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return serialized;
     }
 
+    /**
+     * Writes this flags field into the given buffer straight from the
+     * state of each flag.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short)toValue());
+    }
+
     /**
      * Should return a description of the state of this DNSObject in the
      * format [label][value]
      * @return descriptions of the state of this DNSObject
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return values;
     }
     
     /**
-     * Generates serialized and values based on current state of this
-     * object.
+     * Works out the 16 bit value of this flags field from the state of
+     * each flag.
+     *
+     * @return this flags field as an unsigned 16 bit value
+     */
+    private int toValue() {
+        int value = 0;
+        if (!request) {
+            value |= 0x8000;
+        }
+        value |= (opcode.serialize()[0] & 0x0F) << 11;
+        if (authoritative) {
+            value |= 0x0400;
+        }
+        if (truncated) {
+            value |= 0x0200;
+        }
+        if (recursionDesired) {
+            value |= 0x0100;
+        }
+        if (recursionAvailable) {
+            value |= 0x0080;
+        }
+        value |= returnCode & 0x0F;
+        return value;
+    }
+
+    /**
+     * Re-generates serialized if this flags field has changed since it was last
+     * serialized.
      */
-    protected void generateTransient() {
-        // if there's been no change, don't bother regenerating anything
-        if (changed) {
-            serialized = new byte[FLAGS_LENGTH];
-            //
-            // construct values
-            //
-            if (!request) {
-                serialized[0] = (byte)(serialized[0] | 0x80);
-            }
-            byte[] opcodeValue = opcode.serialize();
-            opcodeValue[0] = (byte)(opcodeValue[0] << 3);
-            serialized[0] = (byte)(serialized[0] | opcodeValue[0]);
+    protected void generateSerialized() {
+        if (serializedChanged) {
+            int value = toValue();
+            serialized = new byte[]{(byte)(value >>> 8), (byte)value};
 
-            if (authoritative) {
-                serialized[0] = (byte)(serialized[0] | 0x04);
-            }
-            if (truncated) {
-                serialized[0] = (byte)(serialized[0] | 0x02);
-            }
-            if (recursionDesired) {
-                serialized[0] = (byte)(serialized[0] | 0x01);
-            }
-            if (recursionAvailable) {
-                serialized[1] = (byte)(serialized[1] | 0x80);
-            }
-            serialized[1] = (byte)(serialized[1] | returnCode);
+            serializedChanged = false;
+        }
+    }
 
-            //
-            // generate values
-            //
-            values.clear();
+    /**
+     * Re-generates values if this flags field has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (valuesChanged) {
+            resetValues();
             values.put("Is Request", request);
             values.put("Opcode", opcode.stateValues());
             values.put("Authoratative", authoritative);
             values.put("Truncated", truncated);
             values.put("Recursion Desired", recursionDesired);
             values.put("Recursion Available", recursionAvailable);
-            values.put("Return Code", returnCode);           
+            values.put("Return Code", returnCode);
 
-            changed = false;
+            valuesChanged = false;
         }
     }
 }
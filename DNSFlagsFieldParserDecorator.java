@@ -1,6 +1,5 @@
 import java.nio.ByteBuffer;
 
-
 /**
  * A decorator for DNSFlagsField that parses a byte buffer to create a
  * DNSFlagsField.
@@ -15,7 +14,7 @@ public class DNSFlagsFieldParserDecorator implements DNSFlagsField {
 
     
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
 
     /**
      * Creates a new DNSFlagsFieldParserDecorator with the given byte
@@ -23,7 +22,7 @@ public class DNSFlagsFieldParserDecorator implements DNSFlagsField {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSFlagsFieldParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSFlagsFieldParserDecorator(ByteCursor bytes) {
         this.bytes = bytes;
         flags = new DNSFlagsFieldImpl();
     }
@@ -33,38 +32,29 @@ public class DNSFlagsFieldParserDecorator implements DNSFlagsField {
      *
      */
     public void parse() {
-        
-        // will need this to parse flags in first byte
-        byte first = bytes.getNext();
-        // rewind because opcode is in first byte too, and it will increment
-        // buffer
-        bytes.rewind();
-        
-        // parse opcode
-        DNSOpcodeParserDecorator opcode = 
-                                    new DNSOpcodeParserDecorator(bytes);
-        opcode.parse();
-        
-
-        byte second = bytes.getNext();
-        
-        // parse is request
-        flags.setIsRequest(((int)first & 0x00000080) != 0);
-        // set opcode
-        flags.setOpcode(opcode);
+        int value  = bytes.readU16();
+        int first  = value >>> 8;
+        int second = value & 0xFF;
+
+        // parse is request, response bit is clear in a request
+        flags.setIsRequest((first & 0x80) == 0);
+        // parse opcode, it's in the middle of the first byte
+        DNSOpcode opcode = DNSOpcodeEnum.forValue((first >>> 3) & 0x0F);
+        if (opcode != null) {
+            flags.setOpcode(opcode);
+        }
 
         // parse authoritative bit
-        flags.setAuthoritative(((int)first & 0x04) != 0);
+        flags.setAuthoritative((first & 0x04) != 0);
         // parse truncated bit
-        flags.setTruncated(((int)first & 0x02) != 0);
+        flags.setTruncated((first & 0x02) != 0);
         // parse recursion desired bit
-        flags.setRecursionDesired(((int)first & 0x01) != 0);
+        flags.setRecursionDesired((first & 0x01) != 0);
         // parse recursion available bit
-        flags.setRecursionAvailable(((int)second & 0x80) != 0);
+        flags.setRecursionAvailable((second & 0x80) != 0);
         
         // parse return code
-        int code = second & 0x0F;
-        flags.setReturnCode(code);
+        flags.setReturnCode(second & 0x0F);
     }
     
 
@@ -210,6 +200,15 @@ public class DNSFlagsFieldParserDecorator implements DNSFlagsField {
         return flags.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSFlagsField object.
+     *
+     * @return the modification count of this DNSFlagsField
+     */
+    public int getModificationCount() {
+        return flags.getModificationCount();
+    }
+
     /**
      * The serialized form of this flags field.
      *
@@ -219,6 +218,16 @@ public class DNSFlagsFieldParserDecorator implements DNSFlagsField {
         return flags.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSFlagsField into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        flags.writeTo(buffer);
+    }
+
     /**
      * Returns a mapping of the state values of this DNSFlagsField.
      *
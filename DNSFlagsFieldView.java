@@ -0,0 +1,216 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only DNSFlagsField that decodes its flags straight out of a
+ * received datagram each time they're asked for.
+ *
+ * @author Chris Blades
+ * @version 4/4/2010
+ */
+public class DNSFlagsFieldView implements DNSFlagsField {
+    /** position of the flags field within a message */
+    private static final int FLAGS_OFFSET = 2;
+
+    /** the datagram this view reads from, the header is at position 0 */
+    private ByteCursor bytes;
+
+    /**
+     * Creates a new DNSFlagsFieldView over the flags field of the message
+     * at the start of the given byte buffer.
+     *
+     * @param bytes byte buffer holding a message
+     */
+    public DNSFlagsFieldView(ByteCursor bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns wether the response flag is clear.
+     *
+     * @return true if this flags field represents a request
+     */
+    public boolean isRequest() {
+        return (bytes.get(FLAGS_OFFSET) & 0x80) == 0;
+    }
+
+    /**
+     * Returns the opcode vale of this flags field
+     *
+     * @return the opcode value of this flags field
+     */
+    public DNSOpcode getOpcode() {
+        switch ((bytes.get(FLAGS_OFFSET) >>> 3) & 0x0F) {
+            case 1:  return DNSOpcodeEnum.IQUERY;
+            case 2:  return DNSOpcodeEnum.STATUS;
+            default: return DNSOpcodeEnum.QUERY;
+        }
+    }
+
+    /**
+     * Returns wether the authoritative bit is set in this flags field.
+     *
+     * @return the state of the authoritative bit
+     */
+    public boolean isAuthorative() {
+        return (bytes.get(FLAGS_OFFSET) & 0x04) != 0;
+    }
+
+    /**
+     * Returns wether the truncated bit is set in this flags field.
+     *
+     * @return the state of the truncated bit
+     */
+    public boolean isTruncated() {
+        return (bytes.get(FLAGS_OFFSET) & 0x02) != 0;
+    }
+
+    /**
+     * Returns wether the recursion desired bit is set in this flags field.
+     *
+     * @return the state of the recursion desired bit.
+     */
+    public boolean recursionDesired() {
+        return (bytes.get(FLAGS_OFFSET) & 0x01) != 0;
+    }
+
+    /**
+     * Returns wether the recursion available bit is set in this flags field.
+     *
+     * @return the state of the recursion available bit.
+     */
+    public boolean recursionAvailable() {
+        return (bytes.get(FLAGS_OFFSET + 1) & 0x80) != 0;
+    }
+
+    /**
+     * Returns the return code value of the flags field.
+     *
+     * @return the return code of this flags field
+     */
+    public int getReturnCode() {
+        return bytes.get(FLAGS_OFFSET + 1) & 0x0F;
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param request ignored
+     */
+    public void setIsRequest(boolean request) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param opcode ignored
+     */
+    public void setOpcode(DNSOpcode opcode) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param authoritative ignored
+     */
+    public void setAuthoritative(boolean authoritative) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param truncated ignored
+     */
+    public void setTruncated(boolean truncated) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param recursionDesired ignored
+     */
+    public void setRecursionDesired(boolean recursionDesired) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param recursionAvailable ignored
+     */
+    public void setRecursionAvailable(boolean recursionAvailable) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Not supported, DNSFlagsFieldView is read-only.
+     *
+     * @param code ignored
+     */
+    public void setReturnCode(int code) {
+        throw new UnsupportedOperationException(
+                                        "DNSFlagsFieldView is read-only");
+    }
+
+    /**
+     * Return the length of the DNS Flag Field, which is a constant.
+     *
+     * @return length of a flag field
+     */
+    public int getLength() {
+        return DNSFlagsFieldImpl.FLAGS_LENGTH;
+    }
+
+    /**
+     * Returns 0, a flags field view can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the flags field bytes.
+     *
+     * @return the flags field as received
+     */
+    public byte[] serialize() {
+        return bytes.copy(FLAGS_OFFSET, DNSFlagsFieldImpl.FLAGS_LENGTH);
+    }
+
+    /**
+     * Copies the flags field bytes into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        bytes.copyTo(FLAGS_OFFSET, DNSFlagsFieldImpl.FLAGS_LENGTH, buffer);
+    }
+
+    /**
+     * Returns a mapping of the state values of this flags field.
+     *
+     * @return the state values of this flags field
+     */
+    public Map stateValues() {
+        Map<Object, Object> values = new Map<Object, Object>();
+        values.put("Is Request", isRequest());
+        values.put("Opcode", getOpcode().stateValues());
+        values.put("Authoratative", isAuthorative());
+        values.put("Truncated", isTruncated());
+        values.put("Recursion Desired", recursionDesired());
+        values.put("Recursion Available", recursionAvailable());
+        values.put("Return Code", getReturnCode());
+        return values;
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import javax.swing.tree.DefaultMutableTreeNode;
 
 /**
@@ -191,6 +192,15 @@ public class DNSHeaderGuiDecorator extends DefaultMutableTreeNode
         return header.getLength();
     }
 
+    /**
+     * Returns the modification count of the underlying DNSHeader.
+     *
+     * @return the modification count of this DNSHeader
+     */
+    public int getModificationCount() {
+        return header.getModificationCount();
+    }
+
     /**
      * Returns the underlying DNSheader serialized as per the DNS protocol
      * 
@@ -200,6 +210,16 @@ public class DNSHeaderGuiDecorator extends DefaultMutableTreeNode
         return header.serialize();
     }
 
+    /**
+     * Writes the serialized version of the wrapped DNSHeader into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        header.writeTo(buffer);
+    }
+
     /**
      * Returns a mapping of the state values of the underlying DNSHeader
      *
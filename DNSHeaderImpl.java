@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 
 /**
  * Represents a DNSObject conforming to the DNS protcol for the header
@@ -16,6 +18,9 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
     /** flags field for this header */
     private DNSFlagsField       flags;
 
+    /** flags field this header created, used again after a reset */
+    private DNSFlagsFieldImpl   ownFlags;
+
     /** the number of questions a packet with this header would contain */
     private int                 numQuestions;
 
@@ -39,7 +44,8 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
     public DNSHeaderImpl() {
         serialized                = new byte[HEADER_LENGTH];
         this.identifier           = (int)Math.random();
-        this.flags                = new DNSFlagsFieldImpl();
+        this.ownFlags             = new DNSFlagsFieldImpl();
+        this.flags                = ownFlags;
         this.numQuestions         = 0;
         this.numAnswers           = 0;
         this.numAuthorityAnswers  = 0;
@@ -108,7 +114,7 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      */
     public void setIdentifier(int identifier) {
         this.identifier = identifier;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -117,8 +123,9 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      * @param flags the new flags field of this header.
      */
     public void setFlags(DNSFlagsField flags) {
+        replacing(this.flags);
         this.flags = flags;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -128,7 +135,7 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      */
     public void setNumQuestions(int numQuestions) {
         this.numQuestions = numQuestions;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -138,7 +145,7 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      */
     public void setNumAnswers(int numAnswers) {
         this.numAnswers = numAnswers;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -148,7 +155,7 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      */
     public void setNumAuthorityAnswers(int numAuthorityAnswers) {
         this.numAuthorityAnswers = numAuthorityAnswers;
-        changed = true;
+        markChanged();
     }
     
     /**
@@ -158,7 +165,7 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      */
     public void setNumAdditionalAnswers(int numAdditionalAnswers) {
         this.numAdditionalAnswers = numAdditionalAnswers;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -170,6 +177,32 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
         return this.HEADER_LENGTH;
     }
 
+    /**
+     * Sets the identifier and every count back to 0 and goes back to this
+     * header's own flags field, reset.
+     */
+    public void reset() {
+        modifications = getModificationCount();
+        this.identifier           = 0;
+        ownFlags.reset();
+        this.flags                = ownFlags;
+        this.numQuestions         = 0;
+        this.numAnswers           = 0;
+        this.numAuthorityAnswers  = 0;
+        this.numAdditionalAnswers = 0;
+        markChanged();
+    }
+
+    /**
+     * Returns the number of times this header or its flags have been
+     * changed.
+     *
+     * @return the modification count of this header
+     */
+    public int getModificationCount() {
+        return modifications + countOf(flags);
+    }
+
     /**
      * Serialize should translate the DNSObject into an array of bytes
      * as per the DNS protocol.
@@ -177,27 +210,41 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
      * @return a byte array representing this DNSObject
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return serialized;
     }
 
+    /**
+     * Writes this header into the given buffer straight from its fields,
+     * with the flags field writing its own 2 bytes.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short)identifier);
+        flags.writeTo(buffer);
+        buffer.putShort((short)numQuestions);
+        buffer.putShort((short)numAnswers);
+        buffer.putShort((short)numAuthorityAnswers);
+        buffer.putShort((short)numAdditionalAnswers);
+    }
+
     /**
      * Should return a description of the state of this DNSObject in the
      * format [label][value]
      * @return descriptions of the state of this DNSObject
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return values;
     }
     
     /**
-     * Generates serialized and values based on current state of this
-     * object.
+     * Re-generates serialized if this header has changed since it was last
+     * serialized.
      */
-    protected void generateTransient() {
-        // if there's been no change, don't bother regenerating anything
-        if (changed) {
+    protected void generateSerialized() {
+        if (isSerializedStale()) {
             //
             // generate serialized
             //
@@ -222,20 +269,28 @@ public class DNSHeaderImpl extends AbstractDNSObject implements DNSHeader {
             // translate numAdditionalAnswers
             serialized[10] = (byte)(numAdditionalAnswers >>> 8);
             serialized[11] = (byte)(numAdditionalAnswers);
-            
-            //
-            // generate values
-            //
-            values.clear();
+
+            serializedChanged = false;
+            serializedCount   = getModificationCount();
+        }
+    }
+
+    /**
+     * Re-generates values if this header has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (isValuesStale()) {
+            resetValues();
             values.put("Identifier", identifier);
             values.put("Flags", flags.stateValues());
             values.put("Number of Questions", numQuestions);
             values.put("Number of Answers", numAnswers);
             values.put("Number of Authority Answers", numAuthorityAnswers);
             values.put("Number of Additional Answers", numAdditionalAnswers);
-            
-            // reset changed
-            changed = false;
+
+            valuesChanged = false;
+            valuesCount   = getModificationCount();
         }
     }
 }
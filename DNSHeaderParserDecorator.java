@@ -2,7 +2,8 @@ import java.nio.ByteBuffer;
 
 /**
  * A decorator for DNSHeader that parses a byte buffer to create a
- * DNSHeader.
+ * DNSHeader.  The header is decoded straight into the primitive fields of
+ * a DNSCompactHeader, so parsing doesn't allocate anything.
  *
  * @author Chris Blades
  * @version 20/3/10
@@ -10,10 +11,10 @@ import java.nio.ByteBuffer;
 public class DNSHeaderParserDecorator implements DNSHeader {
     
     /** The DNSHeader object this object wraps */
-    private DNSHeader header;
+    private DNSCompactHeader header;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
        
     /**
      * Creates a new DNSHeaderParserDecorator with the given byte
@@ -21,9 +22,9 @@ public class DNSHeaderParserDecorator implements DNSHeader {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSHeaderParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSHeaderParserDecorator(ByteCursor bytes) {
         this.bytes = bytes;
-        this.header = new DNSHeaderImpl();
+        this.header = new DNSCompactHeader();
     }
     
     /**
@@ -31,52 +32,7 @@ public class DNSHeaderParserDecorator implements DNSHeader {
      *
      */
     public void parse() {
-        // translate identifier
-        ByteBuffer translator = ByteBuffer.allocate(4);
-        translator.put((byte)0x00);
-        translator.put((byte)0x00);
-        translator.put(bytes.getNext());
-        translator.put(bytes.getNext());
-        header.setIdentifier(translator.getInt(0));
-        
-        // parse flags
-        DNSFlagsFieldParserDecorator flags = 
-                                new DNSFlagsFieldParserDecorator(bytes);
-        flags.parse();
-        header.setFlags(flags);
- 
-
-        // translate num questions
-        translator = ByteBuffer.allocate(4);
-        translator.put((byte)0x00);
-        translator.put((byte)0x00);
-        translator.put(bytes.getNext());
-        translator.put(bytes.getNext());
-        header.setNumQuestions(translator.getInt(0));
-
-        // translate num answers
-        translator = ByteBuffer.allocate(4);
-        translator.put((byte)0x00);
-        translator.put((byte)0x00);
-        translator.put(bytes.getNext());
-        translator.put(bytes.getNext());
-        header.setNumAnswers(translator.getInt(0));
-
-        // translate num authoritative answers
-        translator = ByteBuffer.allocate(4);
-        translator.put((byte)0x00);
-        translator.put((byte)0x00);
-        translator.put(bytes.getNext());
-        translator.put(bytes.getNext());
-        header.setNumAuthorityAnswers(translator.getInt(0));
-
-        // translate num additional answers
-        translator = ByteBuffer.allocate(4);
-        translator.put((byte)0x00);
-        translator.put((byte)0x00);
-        translator.put(bytes.getNext());
-        translator.put(bytes.getNext());
-        header.setNumAdditionalAnswers(translator.getInt(0));
+        header.decode(bytes);
     }
 
     //
@@ -202,6 +158,15 @@ public class DNSHeaderParserDecorator implements DNSHeader {
         return header.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSHeader object.
+     *
+     * @return the modification count of this DNSHeader
+     */
+    public int getModificationCount() {
+        return header.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed dnsanswer object.
      * can't just return the byte buffer because we don't know what else is in
@@ -213,6 +178,16 @@ public class DNSHeaderParserDecorator implements DNSHeader {
         return header.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSHeader into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        header.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSHeader object.
      *
@@ -0,0 +1,190 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only DNSHeader that decodes its fields straight out of a received
+ * datagram each time they're asked for.
+ *
+ * @author Chris Blades
+ * @version 4/4/2010
+ */
+public class DNSHeaderView implements DNSHeader {
+    /** the length of a DNS header */
+    private static final int HEADER_LENGTH = 12;
+
+    /** the datagram this view reads from, the header is at position 0 */
+    private ByteCursor    bytes;
+
+    /** view of the flags field */
+    private DNSFlagsField flags;
+
+    /**
+     * Creates a new DNSHeaderView over the header at the start of the given
+     * byte buffer.
+     *
+     * @param bytes byte buffer holding a message
+     */
+    public DNSHeaderView(ByteCursor bytes) {
+        this.bytes = bytes;
+        this.flags = new DNSFlagsFieldView(bytes);
+    }
+
+    /**
+     * Returns the identifier of this header.
+     *
+     * @return this headers identifier
+     */
+    public int getIdentifier() {
+        return bytes.getU16(0);
+    }
+
+    /**
+     * Returns a view of the flags field of this header.
+     *
+     * @return the flags field of this header.
+     */
+    public DNSFlagsField getFlags() {
+        return flags;
+    }
+
+    /**
+     * Returns the number of questions in a packet with this header.
+     *
+     * @return the number of questions field
+     */
+    public int getNumQuestions() {
+        return bytes.getU16(4);
+    }
+
+    /**
+     * Returns the number of answers in a packet with this header.
+     *
+     * @return the number of answers field
+     */
+    public int getNumAnswers() {
+        return bytes.getU16(6);
+    }
+
+    /**
+     * Returns the number of authority answers in a packet with this header.
+     *
+     * @return the number of authority answers field
+     */
+    public int getNumAuthorityAnswers() {
+        return bytes.getU16(8);
+    }
+
+    /**
+     * Returns the number of additional answers in a packet with this header.
+     *
+     * @return the number of additional answers field
+     */
+    public int getNumAdditionalAnswers() {
+        return bytes.getU16(10);
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param identifier ignored
+     */
+    public void setIdentifier(int identifier) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param flags ignored
+     */
+    public void setFlags(DNSFlagsField flags) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param numQuestions ignored
+     */
+    public void setNumQuestions(int numQuestions) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param numAnswers ignored
+     */
+    public void setNumAnswers(int numAnswers) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param numAuthorityAnswers ignored
+     */
+    public void setNumAuthorityAnswers(int numAuthorityAnswers) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Not supported, DNSHeaderView is read-only.
+     *
+     * @param numAdditionalAnswers ignored
+     */
+    public void setNumAdditionalAnswers(int numAdditionalAnswers) {
+        throw new UnsupportedOperationException("DNSHeaderView is read-only");
+    }
+
+    /**
+     * Returns the length of a DNS header.
+     *
+     * @return the length of a DNS header
+     */
+    public int getLength() {
+        return HEADER_LENGTH;
+    }
+
+    /**
+     * Returns 0, a header view can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the header bytes.
+     *
+     * @return the header as received
+     */
+    public byte[] serialize() {
+        return bytes.copy(0, HEADER_LENGTH);
+    }
+
+    /**
+     * Copies the header bytes into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        bytes.copyTo(0, HEADER_LENGTH, buffer);
+    }
+
+    /**
+     * Returns a mapping of the state values of this header.
+     *
+     * @return the state values of this header
+     */
+    public Map stateValues() {
+        Map<Object, Object> values = new Map<Object, Object>();
+        values.put("Identifier", getIdentifier());
+        values.put("Flags", flags.stateValues());
+        values.put("Number of Questions", getNumQuestions());
+        values.put("Number of Answers", getNumAnswers());
+        values.put("Number of Authority Answers", getNumAuthorityAnswers());
+        values.put("Number of Additional Answers", getNumAdditionalAnswers());
+        return values;
+    }
+}
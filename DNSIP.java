@@ -1,3 +1,5 @@
+import java.net.InetAddress;
+
 /**
  * Wraps an IP address for DNS operations
  *
@@ -11,4 +13,26 @@ public interface DNSIP extends DNSResource {
      * @param IP the new IP
      */
     public void setIP(String ip);
+
+    /**
+     * Changes the IP the DNSIP object wraps.
+     *
+     * @param address the new IP as a 32 bit value, first octet in the
+     *                high byte
+     */
+    public void setIP(int address);
+
+    /**
+     * Returns the IP as a 32 bit value, first octet in the high byte.
+     *
+     * @return the IP as a 32 bit value
+     */
+    public int toInt();
+
+    /**
+     * Returns the IP as an InetAddress.
+     *
+     * @return the IP as an InetAddress
+     */
+    public InetAddress toInetAddress();
 }
@@ -1,12 +1,25 @@
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
 /**
- * Basic implementation of DNSIP
+ * Basic implementation of DNSIP.  Stores the IP as a 32 bit value and only
+ * builds the dotted String when it's asked for.
  *
  * @author Chris Blades
  * @version 3/16/2010
  */
 public class DNSIPImpl extends AbstractDNSObject implements DNSIP {
+    /** the length of an IP address */
+    private static final int IP_LENGTH = 4;
+
+    /**
+     * The IP as a 32 bit value, first octet in the high byte
+     */
+    private int    address;
+
     /**
-     * The String representation of this IP
+     * The String representation of this IP, null until it's asked for
      */
     private String ip;
 
@@ -14,7 +27,7 @@ public class DNSIPImpl extends AbstractDNSObject implements DNSIP {
      * Creates a new IP with the loopback address
      */
     public DNSIPImpl() {
-        this("127.0.0.1");
+        this(0x7F000001);
     }
     
     /**
@@ -23,7 +36,16 @@ public class DNSIPImpl extends AbstractDNSObject implements DNSIP {
      * @param ip the IP address this DNSIP should wrap
      */
     public DNSIPImpl(String ip) {
-        this.ip = ip;
+        this(parse(ip));
+    }
+
+    /**
+     * Creates a new DNSIP with the given 32 bit address.
+     *
+     * @param address the IP as a 32 bit value, first octet in the high byte
+     */
+    public DNSIPImpl(int address) {
+        this.address = address;
     }
 
     /**
@@ -32,8 +54,42 @@ public class DNSIPImpl extends AbstractDNSObject implements DNSIP {
      * @param IP the new IP
      */
     public void setIP(String ip) {
-        this.ip = ip;
-        changed = true;
+        setIP(parse(ip));
+    }
+
+    /**
+     * Changes the IP the DNSIP object wraps.
+     *
+     * @param address the new IP as a 32 bit value, first octet in the
+     *                high byte
+     */
+    public void setIP(int address) {
+        this.address = address;
+        this.ip      = null;
+        markChanged();
+    }
+
+    /**
+     * Returns the IP as a 32 bit value, first octet in the high byte.
+     *
+     * @return the IP as a 32 bit value
+     */
+    public int toInt() {
+        return this.address;
+    }
+
+    /**
+     * Returns the IP as an InetAddress.
+     *
+     * @return the IP as an InetAddress
+     */
+    public InetAddress toInetAddress() {
+        try {
+            return InetAddress.getByAddress(toBytes());
+        } catch (UnknownHostException e) {
+            // only thrown for addresses of the wrong length
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -42,51 +98,141 @@ public class DNSIPImpl extends AbstractDNSObject implements DNSIP {
      * @return a string representation of this IP
      */
     public String getData() {
+        if (ip == null) {
+            StringBuilder builder = new StringBuilder(15);
+            builder.append(address >>> 24);
+            builder.append('.');
+            builder.append((address >>> 16) & 0xFF);
+            builder.append('.');
+            builder.append((address >>> 8) & 0xFF);
+            builder.append('.');
+            builder.append(address & 0xFF);
+            ip = builder.toString();
+        }
         return this.ip;
     }
 
+    /**
+     * Returns the length of an IP, which is a constant.
+     *
+     * @return the length of an IP
+     */
+    public int getLength() {
+        return IP_LENGTH;
+    }
+
+    /**
+     * Sets this IP back to the loopback address.
+     */
+    public void reset() {
+        setIP(0x7F000001);
+    }
+
     /**
      * Return this IP as an array of bytes.
      *
      * @return this IP as an array of bytes
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return this.serialized;
     }
 
+    /**
+     * Writes the 4 bytes of this IP into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(address);
+    }
+
     /**
      * Return a mapping of state values of this IP
      *
      * @return the state values of this DNSIP
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return this.values;
     }
 
     /**
-     * Generate serialized and values if there has been change to the
-     * state of this DNSIP.
+     * Returns the 4 octets of this IP.
+     *
+     * @return the IP as an array of bytes
      */
-    public void generateTransient() {
-        if (changed) {
-            //
-            // generate serialized
-            //
-            serialized = new byte[4];
-            String[] parts = ip.split("\\.");
-            for (int i = 0; i < parts.length && i < serialized.length; i++) {
-                serialized[i] = (byte)Integer.parseInt(parts[i]);
+    private byte[] toBytes() {
+        return new byte[]{(byte)(address >>> 24), (byte)(address >>> 16),
+                          (byte)(address >>> 8),  (byte)address};
+    }
+
+    /**
+     * Translates an IP in dotted notation to a 32 bit value.
+     *
+     * @param ip the IP in dotted notation
+     * @return the IP as a 32 bit value
+     * @throws IllegalArgumentException if ip isn't 4 octets from 0 to 255
+     *         separated by dots
+     */
+    private static int parse(String ip) {
+        int address = 0;
+        int octets  = 0;
+        int index   = 0;
+        while (index < ip.length()) {
+            // read one octet
+            int octet = 0;
+            int start = index;
+            while (index < ip.length() && ip.charAt(index) != '.') {
+                char c = ip.charAt(index);
+                if (c < '0' || c > '9' || index - start > 2) {
+                    throw new IllegalArgumentException("not an IP: " + ip);
+                }
+                octet = octet * 10 + (c - '0');
+                index++;
+            }
+            if (index == start || octet > 255 || octets == IP_LENGTH) {
+                throw new IllegalArgumentException("not an IP: " + ip);
+            }
+            address = (address << 8) | octet;
+            octets++;
+
+            // skip the dot, there has to be another octet after it
+            if (index < ip.length()) {
+                index++;
+                if (index == ip.length()) {
+                    throw new IllegalArgumentException("not an IP: " + ip);
+                }
             }
+        }
+        if (octets != IP_LENGTH) {
+            throw new IllegalArgumentException("not an IP: " + ip);
+        }
+        return address;
+    }
 
-            //
-            // generate values
-            //
-            values.clear();
-            values.put("IP", this.ip);
+    /**
+     * Re-generates serialized if this IP has changed since it was last
+     * serialized.
+     */
+    protected void generateSerialized() {
+        if (serializedChanged) {
+            serialized = toBytes();
+
+            serializedChanged = false;
+        }
+    }
+
+    /**
+     * Re-generates values if this IP has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (valuesChanged) {
+            resetValues();
+            values.put("IP", getData());
 
-            changed = false;
+            valuesChanged = false;
         }
     }
 }
@@ -1,3 +1,6 @@
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSIP that parses a byte buffer to create a
  * DNSIP.
@@ -10,7 +13,7 @@ public class DNSIPParserDecorator implements DNSIP {
     private DNSIP target;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
 
     /**
      * Creates a new DNSIPParserDecorator with the given byte
@@ -18,7 +21,7 @@ public class DNSIPParserDecorator implements DNSIP {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSIPParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSIPParserDecorator(ByteCursor bytes) {
         this.bytes = bytes;
         this.target = new DNSIPImpl();
     }
@@ -27,24 +30,9 @@ public class DNSIPParserDecorator implements DNSIP {
      * Parses the byte buffer to form a DNSIP object.
      */
     public void parse() {
-        // each byte is one octet of the ip
-        byte[] ip = new byte[4];
-        ip[0] = bytes.getNext();
-        ip[1] = bytes.getNext();
-        ip[2] = bytes.getNext();
-        ip[3] = bytes.getNext();
-
-        // translate octets to strings
-        StringBuilder builder = new StringBuilder();
-        builder.append((int)(ip[0] & 0xFF));
-        builder.append(".");
-        builder.append((int)(ip[1] & 0xFF));
-        builder.append(".");
-        builder.append((int)(ip[2] & 0xFF));
-        builder.append(".");
-        builder.append((int)(ip[3] & 0xFF));
-
-        target.setIP(builder.toString());
+        // each byte is one octet of the ip, kept as a 32 bit value, the
+        // dotted form is only built if it's asked for
+        target.setIP((int)bytes.readU32());
     }
     
     /**
@@ -65,6 +53,33 @@ public class DNSIPParserDecorator implements DNSIP {
         target.setIP(ip);
     }
 
+    /**
+     * Sets the IP to a new 32 bit value.
+     *
+     * @param address the new IP, first octet in the high byte
+     */
+    public void setIP(int address) {
+        target.setIP(address);
+    }
+
+    /**
+     * Returns the parsed IP as a 32 bit value.
+     *
+     * @return the IP as a 32 bit value
+     */
+    public int toInt() {
+        return target.toInt();
+    }
+
+    /**
+     * Returns the parsed IP as an InetAddress.
+     *
+     * @return the IP as an InetAddress
+     */
+    public InetAddress toInetAddress() {
+        return target.toInetAddress();
+    }
+
     /**
      * Returns the length of the parsed DNSIP object.
      *
@@ -74,6 +89,15 @@ public class DNSIPParserDecorator implements DNSIP {
         return target.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSIP object.
+     *
+     * @return the modification count of this DNSIP
+     */
+    public int getModificationCount() {
+        return target.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed dnsanswer object.
      * can't just return the byte buffer because we don't know what else is in
@@ -85,6 +109,15 @@ public class DNSIPParserDecorator implements DNSIP {
         return target.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSIP into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        target.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSIP object.
      *
@@ -0,0 +1,49 @@
+/**
+ * Receives the parts of a DNS message one at a time as DNSMessageReader
+ * walks over it, in the order they appear on the wire.  Nothing is built
+ * up between calls, so a handler only pays for the parts it keeps.
+ *
+ * @author Chris Blades
+ * @version 10/4/2010
+ */
+public interface DNSMessageHandler {
+    /**
+     * Called once with the message's header.  The header object is reused
+     * by the reader, so it should not be kept after the call returns.
+     *
+     * @param header the header of the message
+     */
+    public void onHeader(DNSHeader header);
+
+    /**
+     * Called for every question in the message.
+     *
+     * @param name the name asked about, in dotted notation
+     * @param type the numeric type asked for
+     * @param recordClass the numeric class asked for
+     */
+    public void onQuestion(String name, int type, int recordClass);
+
+    /**
+     * Called for every resource record in the message.  The record's data
+     * isn't decoded, it can be read from the message between dataOffset
+     * and dataOffset + dataLength.
+     *
+     * @param section the section the record is in
+     * @param name the name of the record, in dotted notation
+     * @param type the numeric type of the record
+     * @param recordClass the numeric class of the record
+     * @param ttl the time to live of the record
+     * @param message byte buffer holding the whole message
+     * @param dataOffset position of the record's data within message
+     * @param dataLength length of the record's data
+     */
+    public void onRecord(DNSSection section, String name, int type,
+                         int recordClass, int ttl, ByteCursor message,
+                         int dataOffset, int dataLength);
+
+    /**
+     * Called once after the last record of the message.
+     */
+    public void onEnd();
+}
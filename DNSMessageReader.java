@@ -0,0 +1,97 @@
+/**
+ * Walks over a DNS message once, from start to finish, and hands each part
+ * of it to a DNSMessageHandler as it goes.  Unlike
+ * DNSPacketParserDecorator no DNSPacket is built, only names are decoded
+ * and record data is left in place.
+ *
+ * The header and name table are reused from one message to the next, so a
+ * DNSMessageReader should only be used by one thread at a time.
+ *
+ * @author Chris Blades
+ * @version 10/4/2010
+ */
+public class DNSMessageReader {
+    /** header each message is decoded into */
+    private DNSCompactHeader header;
+
+    /** names already decoded from the current message */
+    private DNSNameTable     names;
+
+    /**
+     * Creates a new DNSMessageReader.
+     */
+    public DNSMessageReader() {
+        this.header = new DNSCompactHeader();
+        this.names  = new DNSNameTable();
+    }
+
+    /**
+     * Reads the given message, passing each part of it to handler.
+     *
+     * @param message the message to read
+     * @param handler receives each part of the message
+     */
+    public void read(byte[] message, DNSMessageHandler handler) {
+        read(new ByteCursor(message), handler);
+    }
+
+    /**
+     * Reads the message in the given byte buffer, passing each part of it
+     * to handler.  The byte buffer must start at the first byte of the
+     * message since compression pointers are relative to it.
+     *
+     * @param message byte buffer holding exactly one message
+     * @param handler receives each part of the message
+     */
+    public void read(ByteCursor message, DNSMessageHandler handler) {
+        names.clear();
+        message.setPosition(0);
+
+        header.decode(message);
+        handler.onHeader(header);
+        // copy the counts, the handler may have changed the header
+        int numQuestions  = header.getNumQuestions();
+        int numAnswers    = header.getNumAnswers();
+        int numAuthority  = header.getNumAuthorityAnswers();
+        int numAdditional = header.getNumAdditionalAnswers();
+
+        for (int i = 0; i < numQuestions; i++) {
+            String name = DNSUrlParserDecorator.readUrl(message, names);
+            int type        = message.readU16();
+            int recordClass = message.readU16();
+            handler.onQuestion(name, type, recordClass);
+        }
+
+        readRecords(message, DNSSection.ANSWER, numAnswers, handler);
+        readRecords(message, DNSSection.AUTHORITY, numAuthority, handler);
+        readRecords(message, DNSSection.ADDITIONAL, numAdditional, handler);
+
+        handler.onEnd();
+    }
+
+    /**
+     * Reads count records from the current position of the byte buffer.
+     *
+     * @param message byte buffer holding the whole message
+     * @param section the section the records are in
+     * @param count the number of records in the section
+     * @param handler receives each record
+     */
+    private void readRecords(ByteCursor message, DNSSection section,
+                             int count, DNSMessageHandler handler) {
+        for (int i = 0; i < count; i++) {
+            String name = DNSUrlParserDecorator.readUrl(message, names);
+            int type        = message.readU16();
+            int recordClass = message.readU16();
+            int ttl         = (int)message.readU32();
+            int length      = message.readU16();
+            int offset      = message.getPosition();
+            // make sure the data is all there before handing it out
+            message.skip(length);
+
+            handler.onRecord(section, name, type, recordClass, ttl,
+                             message, offset, length);
+            message.setPosition(offset + length);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * A canonical, immutable domain name shared by every DNSUrl that refers to
+ * it.  Holds the dotted form of the name and, once it has been asked for,
+ * the name encoded in DNS format so it only has to be encoded once.
+ *
+ * DNSNames should only be created through DNSNamePool.
+ *
+ * @author Chris Blades
+ * @version 7/4/2010
+ */
+public class DNSName {
+    /** the longest a single label can be */
+    public static final int MAX_LABEL_LENGTH = 63;
+
+    /** the name in dotted notation */
+    private final String url;
+
+    /** the name in DNS format, null until it's first needed */
+    private volatile byte[] wire;
+
+    /**
+     * the name in DNS format with any character up to 0xFF allowed, null
+     * until it's first needed
+     */
+    private volatile byte[] rawWire;
+
+    /**
+     * Creates a new DNSName for the given name.
+     *
+     * @param url the name in dotted notation
+     */
+    DNSName(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Returns the name in dotted notation.
+     *
+     * @return the name in dotted notation
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * Returns the name in DNS format.  The name is only encoded the first
+     * time, and the array is shared by everything using this name, so it
+     * must not be modified.
+     *
+     * @return the name in DNS format
+     * @throws IllegalArgumentException if the name can't be encoded
+     */
+    public byte[] getWire() {
+        byte[] encoded = wire;
+        if (encoded == null) {
+            encoded = encode(url, true);
+            wire = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns the name in DNS format, writing every character up to 0xFF
+     * as the octet it was read from.  Used for names decoded from a
+     * message, whose labels may hold any octet.  Shared like getWire().
+     *
+     * @return the name in DNS format
+     * @throws IllegalArgumentException if the name has a character above
+     *         0xFF, or can't be split into labels
+     */
+    public byte[] getRawWire() {
+        byte[] encoded = rawWire;
+        if (encoded == null) {
+            encoded = wire != null ? wire : encode(url, false);
+            rawWire = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * Translates a name in dotted notation into DNS format in one pass
+     * over its characters.  A trailing dot is allowed and ignored, "" and
+     * "." are the root.
+     *
+     * @param url the name to translate
+     * @param ascii wether to only allow ASCII characters, rather than any
+     *              character up to 0xFF
+     * @return the name in DNS format
+     * @throws IllegalArgumentException if the name has an empty label, a
+     *         label longer than 63 bytes, is longer than 255 bytes encoded
+     *         or has a character that isn't allowed
+     */
+    private static byte[] encode(String url, boolean ascii) {
+        int length = url.length();
+        // a trailing dot only marks the name as fully qualified
+        if (length > 0 && url.charAt(length - 1) == '.') {
+            length--;
+        }
+        if (length == 0) {
+            return new byte[]{0};
+        }
+
+        // every dot becomes a length byte, plus one for the first label
+        // and the final 0
+        byte[] serialized = new byte[length + 2];
+        if (serialized.length > DNSUrlParserDecorator.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("name longer than "
+                        + DNSUrlParserDecorator.MAX_NAME_LENGTH + " bytes: "
+                        + url);
+        }
+
+        // character i of url goes at i + 1, the length of the label
+        // starting at character i goes at i
+        int labelStart = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? url.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("label of "
+                                + labelLength + " bytes in " + url);
+                }
+                serialized[labelStart] = (byte)labelLength;
+                labelStart = i + 1;
+            } else if (c > (ascii ? 0x7F : 0xFF)) {
+                throw new IllegalArgumentException("non-ASCII character in "
+                                                   + url);
+            } else {
+                serialized[i + 1] = (byte)c;
+            }
+        }
+        return serialized;
+    }
+
+    /**
+     * Returns the name in dotted notation.
+     *
+     * @return the name in dotted notation
+     */
+    public String toString() {
+        return this.url;
+    }
+}
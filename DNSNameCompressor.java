@@ -0,0 +1,125 @@
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Writes names into a message using DNS compression.  Remembers where each
+ * name suffix has already been written in the current message, and when a
+ * name ends in a suffix that's been written before only the labels in
+ * front of it are written, followed by a pointer to the earlier copy.
+ * Suffixes are compared without regard to case, the same as names are.
+ *
+ * A compressor is only valid for the message it's writing, reset() has to
+ * be called at the start of every message.
+ *
+ * @author Chris Blades
+ * @version 14/4/2010
+ */
+public class DNSNameCompressor {
+    /** largest offset a compression pointer can hold */
+    private static final int MAX_OFFSET = 0x3FFF;
+
+    /** top two bits marking a length byte as a compression pointer */
+    private static final int POINTER = 0xC000;
+
+    /** offset of every suffix written so far, keyed by its lower-case form */
+    private HashMap<String, Integer> suffixes;
+
+    /** position in the buffer of the first byte of the message */
+    private int start;
+
+    /**
+     * Creates a new DNSNameCompressor.
+     */
+    public DNSNameCompressor() {
+        this.suffixes = new HashMap<String, Integer>();
+        this.start    = 0;
+    }
+
+    /**
+     * Forgets every suffix written so far and starts a new message.
+     *
+     * @param start position in the buffer of the first byte of the message,
+     *              pointers are relative to it
+     */
+    public void reset(int start) {
+        suffixes.clear();
+        this.start = start;
+    }
+
+    /**
+     * Writes the given name into buffer at its position, pointing to an
+     * earlier copy of as much of the name as possible.
+     *
+     * @param name the name to write
+     * @param buffer the buffer holding the message
+     */
+    public void writeName(DNSUrl name, ByteBuffer buffer) {
+        writeName(name.serialize(), buffer);
+    }
+
+    /**
+     * Writes the given uncompressed name into buffer at its position,
+     * pointing to an earlier copy of as much of the name as possible.
+     *
+     * @param wire the name in DNS format, without compression
+     * @param buffer the buffer holding the message
+     */
+    public void writeName(byte[] wire, ByteBuffer buffer) {
+        int index = 0;
+        while (index < wire.length && wire[index] != 0) {
+            String suffix = suffix(wire, index);
+            Integer offset = suffixes.get(suffix);
+            if (offset != null) {
+                buffer.putShort((short)(POINTER | offset.intValue()));
+                return;
+            }
+
+            // remember this suffix if a pointer can reach it
+            int position = buffer.position() - start;
+            if (position <= MAX_OFFSET) {
+                suffixes.put(suffix, Integer.valueOf(position));
+            }
+
+            int labelLength = wire[index] & 0xFF;
+            buffer.put(wire, index, labelLength + 1);
+            index += labelLength + 1;
+        }
+        buffer.put((byte)0);
+    }
+
+    /**
+     * Returns wether the data of records of the given type is a name that
+     * may be compressed.  Only the types from the original DNS spec are,
+     * since other software may not expect pointers in anything newer.
+     *
+     * @param type the type of a record
+     * @return true if the record's data is a compressible name
+     */
+    public static boolean hasNameData(DNSRecordType type) {
+        byte[] bytes = type.serialize();
+        int code = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        return code == DNSRecordTypeEnum.NS.getCode()
+            || code == DNSRecordTypeEnum.CNAME.getCode()
+            || code == DNSRecordTypeEnum.PTR.getCode();
+    }
+
+    /**
+     * Returns the labels of a name starting at the given index, lower
+     * cased, for use as a key.
+     *
+     * @param wire the name in DNS format
+     * @param index index of the length byte of the first label
+     * @return the suffix as a key
+     */
+    private static String suffix(byte[] wire, int index) {
+        char[] key = new char[wire.length - index];
+        for (int i = 0; i < key.length; i++) {
+            char c = (char)(wire[index + i] & 0xFF);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char)(c + ('a' - 'A'));
+            }
+            key[i] = c;
+        }
+        return new String(key);
+    }
+}
@@ -0,0 +1,177 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interns domain names so that every DNSUrl naming the same domain,
+ * whether parsed or built by DNSFactory, shares one canonical DNSName and
+ * its encoded bytes.  Names are matched ignoring the case of A to Z, as
+ * DNS does, but a name is never handed back in another spelling: a name
+ * spelled differently from the canonical one gets a DNSName of its own
+ * that isn't pooled, so every DNSUrl is encoded as its caller spelled it.
+ *
+ * Names are only weakly held, once nothing refers to a name any more it
+ * drops out of the pool.  Safe to use from any thread.
+ *
+ * @author Chris Blades
+ * @version 7/4/2010
+ */
+public class DNSNamePool {
+    /** canonical names, keyed by their form with A to Z lower cased */
+    private static final ConcurrentHashMap<String, NameReference> names =
+                            new ConcurrentHashMap<String, NameReference>();
+
+    /** references to names that have been garbage collected */
+    private static final ReferenceQueue<DNSName> collected =
+                            new ReferenceQueue<DNSName>();
+
+    /** number of lookups that found a canonical name */
+    private static final AtomicLong hits   = new AtomicLong();
+
+    /** number of lookups that had to create a canonical name */
+    private static final AtomicLong misses = new AtomicLong();
+
+    /** no instances, everything is static */
+    private DNSNamePool() {
+    }
+
+    /**
+     * Returns the canonical DNSName for the given name, creating it if
+     * there isn't one yet.  If the canonical name is spelled with other
+     * cases a new DNSName is returned that keeps url's spelling.
+     *
+     * @param url the name in dotted notation
+     * @return a DNSName spelled exactly as url
+     */
+    public static DNSName intern(String url) {
+        expunge();
+        String key = toKey(url);
+
+        NameReference reference = names.get(key);
+        DNSName name = reference == null ? null : reference.get();
+        if (name != null) {
+            if (name.getUrl().equals(url)) {
+                hits.incrementAndGet();
+                return name;
+            }
+            misses.incrementAndGet();
+            return new DNSName(url);
+        }
+        misses.incrementAndGet();
+
+        DNSName created = new DNSName(url);
+        NameReference createdReference =
+                                new NameReference(created, key, collected);
+        while (true) {
+            reference = names.putIfAbsent(key, createdReference);
+            if (reference == null) {
+                return created;
+            }
+            // another thread got there first, use its name if it's alive
+            name = reference.get();
+            if (name != null) {
+                return name.getUrl().equals(url) ? name : created;
+            }
+            if (names.replace(key, reference, createdReference)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of names currently in the pool.
+     *
+     * @return the number of names in the pool
+     */
+    public static int size() {
+        expunge();
+        return names.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a canonical name.
+     *
+     * @return the number of hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to create a canonical name.
+     *
+     * @return the number of misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of lookups that found a canonical name.
+     *
+     * @return hits / (hits + misses), or 0 if there haven't been any
+     */
+    public static double getHitRatio() {
+        long found = hits.get();
+        long total = found + misses.get();
+        return total == 0 ? 0.0 : (double)found / total;
+    }
+
+    /**
+     * Returns the key a name is pooled under, avoiding a copy when the
+     * name has no upper-case letters.  Only A to Z are folded, DNS
+     * compares every other octet exactly.
+     *
+     * @param url the name in dotted notation
+     * @return url with A to Z lower cased
+     */
+    private static String toKey(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] key = url.toCharArray();
+                for (int j = i; j < key.length; j++) {
+                    c = key[j];
+                    if (c >= 'A' && c <= 'Z') {
+                        key[j] = (char)(c + ('a' - 'A'));
+                    }
+                }
+                return new String(key);
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Removes the entries of names that have been garbage collected.
+     */
+    private static void expunge() {
+        NameReference reference;
+        while ((reference = (NameReference)collected.poll()) != null) {
+            names.remove(reference.key, reference);
+        }
+    }
+
+    /**
+     * Weak reference to a canonical name that remembers its key, so the
+     * entry can be removed once the name is collected.
+     */
+    private static class NameReference extends WeakReference<DNSName> {
+        /** key the name is pooled under */
+        private final String key;
+
+        /**
+         * Creates a new NameReference.
+         *
+         * @param name the canonical name
+         * @param key key the name is pooled under
+         * @param queue queue to register with
+         */
+        NameReference(DNSName name, String key,
+                      ReferenceQueue<DNSName> queue) {
+            super(name, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Remembers the names that have already been decoded from one message,
+ * keyed by the position each label starts at.  When a compression pointer
+ * refers to a position that has already been decoded the name can be
+ * looked up instead of decoded again, and every record pointing there
+ * shares the same String.
+ *
+ * A table is only valid for the message it was filled from.
+ *
+ * @author Chris Blades
+ * @version 5/4/2010
+ */
+public class DNSNameTable {
+    /** initial number of positions the table can hold */
+    private static final int INITIAL_SIZE = 512;
+
+    /** decoded names, indexed by the position their first label starts at */
+    private String[] names;
+
+    /**
+     * Creates a new empty DNSNameTable.
+     */
+    public DNSNameTable() {
+        this.names = null;
+    }
+
+    /**
+     * Returns the name that starts at the given position, or null if it
+     * hasn't been decoded yet.
+     *
+     * @param position position within the message
+     * @return the name starting at position, or null
+     */
+    public String get(int position) {
+        if (names == null || position >= names.length) {
+            return null;
+        }
+        return names[position];
+    }
+
+    /**
+     * Records the name that starts at the given position.
+     *
+     * @param position position within the message
+     * @param name the name, in dotted notation, starting at position
+     */
+    public void put(int position, String name) {
+        if (names == null) {
+            names = new String[Math.max(INITIAL_SIZE, position + 1)];
+        } else if (position >= names.length) {
+            String[] larger = new String[Math.max(names.length * 2,
+                                                  position + 1)];
+            System.arraycopy(names, 0, larger, 0, names.length);
+            names = larger;
+        }
+        names[position] = name;
+    }
+
+    /**
+     * Forgets every name, so the table can be reused for another message.
+     */
+    public void clear() {
+        if (names != null) {
+            java.util.Arrays.fill(names, null);
+        }
+    }
+}
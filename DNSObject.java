@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 
 /**
  * A DNSObject is any object representing a part of the DNS protocol
@@ -16,6 +18,18 @@ public interface DNSObject {
      */
     public byte[] serialize();
 
+    /**
+     * Writes this DNSObject into the given buffer as per the DNS protocol,
+     * starting at the buffer's position and leaving the position just past
+     * the last byte written.  Writes the same bytes as serialize() without
+     * building an array first, so a whole packet can be encoded in one pass.
+     *
+     * @param buffer the buffer to write into
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have
+     *         getLength() bytes remaining
+     */
+    public void writeTo(ByteBuffer buffer);
+
     /**
      * Should return a description of the state of this DNSObject in the
      * format [label][value]
@@ -23,6 +37,17 @@ public interface DNSObject {
      */
     public Map stateValues();
 
+    /**
+     * Returns a count that goes up every time this DNSObject, or any
+     * DNSObject it's made of, is changed.  An object holding this one
+     * compares it with the count it saw when it last serialized to tell
+     * wether its own bytes are out of date.  Objects that can't be changed
+     * always return 0.
+     *
+     * @return the modification count of this DNSObject
+     */
+    public int getModificationCount();
+
     /**
      * Return's the length of this DNSObject once serialized.
      *
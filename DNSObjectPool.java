@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps DNSPacketImpl, DNSHeaderImpl, DNSQuestionImpl and DNSAnswerImpl
+ * objects that are no longer used so they can be handed out again instead
+ * of creating new ones.  Objects are reset() when they're released, so
+ * anything taken from the pool looks newly created.
+ *
+ * Each thread has its own pool, returned by get(), so no locking is
+ * needed.  An object should be released on the thread that took it and
+ * must not be used, or released again, after it's been released.  Objects
+ * that were never taken from a pool may be released into one as well.
+ *
+ * @author Chris Blades
+ * @version 16/4/2010
+ */
+public class DNSObjectPool {
+    /** largest number of free objects of each kind kept */
+    private static final int MAX_FREE = 256;
+
+    /** the pool belonging to each thread */
+    private static final ThreadLocal<DNSObjectPool> POOLS =
+                                        new ThreadLocal<DNSObjectPool>() {
+        protected DNSObjectPool initialValue() {
+            return new DNSObjectPool();
+        }
+    };
+
+    /** free packets */
+    private List<DNSPacketImpl>   packets;
+
+    /** free headers */
+    private List<DNSHeaderImpl>   headers;
+
+    /** free questions */
+    private List<DNSQuestionImpl> questions;
+
+    /** free answers */
+    private List<DNSAnswerImpl>   answers;
+
+    /**
+     * Creates a new, empty DNSObjectPool.  Use get() for the calling
+     * thread's pool.
+     */
+    private DNSObjectPool() {
+        this.packets   = new ArrayList<DNSPacketImpl>();
+        this.headers   = new ArrayList<DNSHeaderImpl>();
+        this.questions = new ArrayList<DNSQuestionImpl>();
+        this.answers   = new ArrayList<DNSAnswerImpl>();
+    }
+
+    /**
+     * Returns the pool belonging to the calling thread.
+     *
+     * @return this thread's pool
+     */
+    public static DNSObjectPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * Returns an empty packet.
+     *
+     * @return a packet with no header, questions or answers
+     */
+    public DNSPacketImpl getPacket() {
+        if (packets.isEmpty()) {
+            return new DNSPacketImpl();
+        }
+        return packets.remove(packets.size() - 1);
+    }
+
+    /**
+     * Returns a header with every field 0 and every flag false.
+     *
+     * @return a blank header
+     */
+    public DNSHeaderImpl getHeader() {
+        if (headers.isEmpty()) {
+            return new DNSHeaderImpl();
+        }
+        return headers.remove(headers.size() - 1);
+    }
+
+    /**
+     * Returns a question with no name, type or class.
+     *
+     * @return a blank question
+     */
+    public DNSQuestionImpl getQuestion() {
+        if (questions.isEmpty()) {
+            return new DNSQuestionImpl();
+        }
+        return questions.remove(questions.size() - 1);
+    }
+
+    /**
+     * Returns an answer with no name, type, class or data.
+     *
+     * @return a blank answer
+     */
+    public DNSAnswerImpl getAnswer() {
+        if (answers.isEmpty()) {
+            return new DNSAnswerImpl();
+        }
+        return answers.remove(answers.size() - 1);
+    }
+
+    /**
+     * Releases a packet along with its header, questions and answers.
+     * Anything that isn't one of the pooled classes is ignored.
+     *
+     * @param packet the packet to release
+     */
+    public void release(DNSPacket packet) {
+        if (!(packet instanceof DNSPacketImpl)) {
+            return;
+        }
+        release(packet.getHeader());
+        List<DNSQuestion> asked = packet.getQuestions();
+        for (int i = 0; i < asked.size(); i++) {
+            release(asked.get(i));
+        }
+        releaseAll(packet.getAnswers());
+        releaseAll(packet.getAuthoritativeAnswers());
+        releaseAll(packet.getAdditionalAnswers());
+
+        DNSPacketImpl impl = (DNSPacketImpl)packet;
+        impl.reset();
+        if (packets.size() < MAX_FREE) {
+            packets.add(impl);
+        }
+    }
+
+    /**
+     * Releases a header.  Anything other than a DNSHeaderImpl is ignored.
+     *
+     * @param header the header to release
+     */
+    public void release(DNSHeader header) {
+        if (!(header instanceof DNSHeaderImpl)) {
+            return;
+        }
+        DNSHeaderImpl impl = (DNSHeaderImpl)header;
+        impl.reset();
+        if (headers.size() < MAX_FREE) {
+            headers.add(impl);
+        }
+    }
+
+    /**
+     * Releases a question.  Anything other than a DNSQuestionImpl is
+     * ignored.
+     *
+     * @param question the question to release
+     */
+    public void release(DNSQuestion question) {
+        if (!(question instanceof DNSQuestionImpl)) {
+            return;
+        }
+        DNSQuestionImpl impl = (DNSQuestionImpl)question;
+        impl.reset();
+        if (questions.size() < MAX_FREE) {
+            questions.add(impl);
+        }
+    }
+
+    /**
+     * Releases an answer.  Anything other than a DNSAnswerImpl is ignored.
+     *
+     * @param answer the answer to release
+     */
+    public void release(DNSAnswer answer) {
+        if (!(answer instanceof DNSAnswerImpl)) {
+            return;
+        }
+        DNSAnswerImpl impl = (DNSAnswerImpl)answer;
+        impl.reset();
+        if (answers.size() < MAX_FREE) {
+            answers.add(impl);
+        }
+    }
+
+    /**
+     * Releases every answer in a list.
+     *
+     * @param list the answers to release
+     */
+    private void releaseAll(List<DNSAnswer> list) {
+        for (int i = 0; i < list.size(); i++) {
+            release(list.get(i));
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of DNSOpcode using an enumeration of the most common
  * values used in the Opcode field.
@@ -45,6 +47,22 @@ public enum DNSOpcodeEnum implements DNSOpcode {
         this.serialized  = new byte[OPCODE_LENGTH];
     }
     
+    /**
+     * Returns the DNSOpcodeEnum with the given value, or null if the
+     * value isn't one of the known opcodes.
+     *
+     * @param value the 4 bit opcode value
+     * @return the matching opcode, or null
+     */
+    public static DNSOpcodeEnum forValue(int value) {
+        switch (value) {
+            case 0:  return QUERY;
+            case 1:  return IQUERY;
+            case 2:  return STATUS;
+            default: return null;
+        }
+    }
+
     /**
      * Returns the name of this opcode.
      *
@@ -66,6 +84,15 @@ public enum DNSOpcodeEnum implements DNSOpcode {
         return this.OPCODE_LENGTH;
     }
 
+    /**
+     * Returns 0, opcodes can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
     /**
      * Returns this opcode stored in the correct location in the first byte
      * of an array.
@@ -76,6 +103,16 @@ public enum DNSOpcodeEnum implements DNSOpcode {
         return new byte[]{value};
     }
 
+    /**
+     * Writes this opcode into the given buffer as a single byte, the same
+     * as serialize().
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(value);
+    }
+
     /**
      * Returns a mapping of the state values of this DNSOpcode.
      *
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSOpcode that parses a byte buffer to create a
  * DNSOpcode.
@@ -10,7 +12,7 @@ public class DNSOpcodeParserDecorator implements DNSOpcode {
     private DNSOpcode opcode;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
 
     /**
      * Creates a new DNSOpcodeParserDecorator with the given byte
@@ -18,7 +20,7 @@ public class DNSOpcodeParserDecorator implements DNSOpcode {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSOpcodeParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSOpcodeParserDecorator(ByteCursor bytes) {
         this.bytes = bytes;
     }
 
@@ -60,6 +62,15 @@ public class DNSOpcodeParserDecorator implements DNSOpcode {
         return opcode.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSOpcode object.
+     *
+     * @return the modification count of this DNSOpcode
+     */
+    public int getModificationCount() {
+        return opcode.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed dnsanswer object.
      * can't just return the byte buffer because we don't know what else is in
@@ -71,6 +82,16 @@ public class DNSOpcodeParserDecorator implements DNSOpcode {
         return opcode.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSOpcode into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        opcode.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSOpcode object.
      *
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.util.List;
 
@@ -191,6 +192,15 @@ public class DNSPacketGuiDecorator extends DefaultMutableTreeNode
     public int getLength() {
         return packet.getLength();
     }
+
+    /**
+     * Returns the modification count of the underlying DNSPacket.
+     *
+     * @return the modification count of this DNSPacket
+     */
+    public int getModificationCount() {
+        return packet.getModificationCount();
+    }
     
     /**
      * Returns a mapping of the state values of this DNSpacket.
@@ -209,4 +219,14 @@ public class DNSPacketGuiDecorator extends DefaultMutableTreeNode
     public byte[] serialize() {
         return packet.serialize();
     }
+
+    /**
+     * Writes the serialized version of the wrapped DNSPacket into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        packet.writeTo(buffer);
+    }
 }
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -23,6 +25,24 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
     /** list of additional answers contained in this packet */
     private List<DNSAnswer>   additionalAnswers;
 
+    /** wether names are compressed when this packet is serialized */
+    private boolean           compression;
+
+    /** compresses names while writing, null until compression is used */
+    private DNSNameCompressor compressor;
+
+    /** the header then every question and answer, as last serialized */
+    private DNSObject[]       parts;
+
+    /**
+     * where each part starts in serialized followed by where the last one
+     * ends, only meaningful without compression
+     */
+    private int[]             partOffsets;
+
+    /** modification count of each part when it was last written */
+    private int[]             partCounts;
+
     /**
      * Creates a new DNSPacket with no header, questions, or answers.
      */
@@ -84,8 +104,9 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
      * @param header the new header of this DNSpacket.
      */
     public void setHeader(DNSHeader header) {
+        replacing(this.header);
         this.header = header;
-        changed = true;
+        markChanged();
     }
     
     /**
@@ -95,7 +116,7 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
      */
     public void setQuestion(DNSQuestion question) {
         this.questions.add(question);
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -105,7 +126,7 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
      */
     public void addAnswer(DNSAnswer answer) {
         this.answers.add(answer);
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -115,7 +136,7 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
      */
     public void addAuthoritativeAnswer(DNSAnswer answer) {
         this.authoritativeAnswers.add(answer);
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -125,118 +146,325 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
      */
     public void addAdditionalAnswer(DNSAnswer answer) {
         this.additionalAnswers.add(answer);
-        changed = true;
+        markChanged();
     }
     
+    /**
+     * Returns wether names are compressed when this packet is serialized.
+     *
+     * @return true if names are compressed
+     */
+    public boolean usesCompression() {
+        return this.compression;
+    }
+
+    /**
+     * Sets wether names are compressed when this packet is serialized.
+     * With compression on every name, and the data of NS, CNAME and PTR
+     * records, points back to any earlier copy of its suffix instead of
+     * repeating it, the same as responses from a real server.  Off by
+     * default.
+     *
+     * @param compression wether to compress names
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+        markChanged();
+    }
+
     /**
      * Returns the length of this DNSPacket when serialized.
      *
      * @return the length of the serialized version of this packet.
      */
     public int getLength() {
-        generateTransient();
+        generateSerialized();
         return serialized.length;
     }
 
+    /**
+     * Empties this packet of its header, questions and answers and turns
+     * compression off.
+     */
+    public void reset() {
+        modifications = getModificationCount();
+        this.header = null;
+        questions.clear();
+        answers.clear();
+        authoritativeAnswers.clear();
+        additionalAnswers.clear();
+        this.compression = false;
+        markChanged();
+    }
+
+    /**
+     * Returns the number of times this packet, its header or any of its
+     * questions or answers have been changed.
+     *
+     * @return the modification count of this packet
+     */
+    public int getModificationCount() {
+        int count = modifications + countOf(header);
+        for (int i = 0; i < questions.size(); i++) {
+            count += questions.get(i).getModificationCount();
+        }
+        count += countOf(answers);
+        count += countOf(authoritativeAnswers);
+        count += countOf(additionalAnswers);
+        return count;
+    }
+
+    /**
+     * Returns the sum of the modification counts of a section of answers.
+     *
+     * @param section the answers to count
+     * @return their modification counts added up
+     */
+    private static int countOf(List<DNSAnswer> section) {
+        int count = 0;
+        for (int i = 0; i < section.size(); i++) {
+            count += section.get(i).getModificationCount();
+        }
+        return count;
+    }
+
     /**
      * Returns a byte array containing this packet serialized as per the
-     * DNS protocol
+     * DNS protocol.  When a question or answer changes without changing
+     * length, only its bytes are written again, into the same array, so
+     * copy the array to keep the bytes as they are now.
      *
      * @return this packet serialized as per the DNS protol
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return this.serialized;
     }
 
+    /**
+     * Writes this packet into the given buffer in one pass, the header
+     * then every question and answer writing itself in turn.  Nothing is
+     * serialized to an intermediate array, so the buffer can be a reused
+     * direct buffer handed straight to a channel.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (compression) {
+            writeCompressed(buffer);
+            return;
+        }
+        header.writeTo(buffer);
+        for (DNSObject o : questions) {
+            o.writeTo(buffer);
+        }
+        for (DNSObject o : answers) {
+            o.writeTo(buffer);
+        }
+        for (DNSObject o : authoritativeAnswers) {
+            o.writeTo(buffer);
+        }
+        for (DNSObject o : additionalAnswers) {
+            o.writeTo(buffer);
+        }
+    }
+
+    /**
+     * Writes this packet into the given buffer with its names compressed.
+     *
+     * @param buffer the buffer to write into
+     */
+    private void writeCompressed(ByteBuffer buffer) {
+        if (compressor == null) {
+            compressor = new DNSNameCompressor();
+        }
+        compressor.reset(buffer.position());
+
+        header.writeTo(buffer);
+        for (DNSQuestion question : questions) {
+            compressor.writeName(question.getName(), buffer);
+            question.getType().writeTo(buffer);
+            question.getRecordClass().writeTo(buffer);
+        }
+        writeCompressed(answers, buffer);
+        writeCompressed(authoritativeAnswers, buffer);
+        writeCompressed(additionalAnswers, buffer);
+    }
+
+    /**
+     * Writes a section of answers into the given buffer with their names
+     * compressed.
+     *
+     * @param section the answers to write
+     * @param buffer the buffer to write into
+     */
+    private void writeCompressed(List<DNSAnswer> section, ByteBuffer buffer) {
+        for (DNSAnswer answer : section) {
+            compressor.writeName(answer.getName(), buffer);
+            answer.getType().writeTo(buffer);
+            answer.getRecordClass().writeTo(buffer);
+            buffer.putInt(answer.getTTL());
+
+            // leave room for the data length, then go back and fill it in
+            int lengthIndex = buffer.position();
+            buffer.putShort((short)0);
+            DNSResource data = answer.getData();
+            if (data instanceof DNSUrl
+                    && DNSNameCompressor.hasNameData(answer.getType())) {
+                compressor.writeName((DNSUrl)data, buffer);
+            } else {
+                data.writeTo(buffer);
+            }
+            buffer.putShort(lengthIndex,
+                            (short)(buffer.position() - lengthIndex - 2));
+        }
+    }
+
     /**
      * Returns a mapping of state values of this DNSPacket
      *
      * @return the state values of this DNSPacket
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return this.values;
     }
 
     /**
-     * Re-generates serialized and values when changes are made to the state
-     * of this packet
+     * Re-generates serialized if this packet or any of its parts has
+     * changed since it was last serialized, writing only the changed parts
+     * again when it can.
      */
-    protected void generateTransient() {
-        if (changed) {
-            //
-            // generate values
-            //
-            
-            // find size
-            int size = header.getLength();        
-            for (DNSObject o : questions) {
-                size += o.getLength();
-            }
+    protected void generateSerialized() {
+        if (!serializedChanged && patchSerialized()) {
+            return;
+        }
 
-            for (DNSObject o : answers) {
-                size += o.getLength();
-            }
-            
-            for (DNSObject o : authoritativeAnswers) {
-                size += o.getLength();
-            }
+        //
+        // generate serialized
+        //
+        int count = partCount();
+        if (parts == null || parts.length != count) {
+            parts       = new DNSObject[count];
+            partOffsets = new int[count + 1];
+            partCounts  = new int[count];
+        }
 
-            for (DNSObject o : additionalAnswers) {
-                size += o.getLength();
-            }
-            serialized = new byte[size];
-
-            int index = 0;
-            // copy header bytes
-            byte[] tempBytes = header.serialize();
-            for (int i = 0; i < tempBytes.length; i++) {
-                serialized[index] = tempBytes[i];
-                index++;
-            }
+        // find size, only an upper bound when names are compressed
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            parts[i]       = part(i);
+            partOffsets[i] = size;
+            size += parts[i].getLength();
+        }
+        partOffsets[count] = size;
+        serialized = new byte[size];
+
+        // every part writes itself straight into serialized
+        ByteBuffer buffer = ByteBuffer.wrap(serialized);
+        writeTo(buffer);
+        if (buffer.position() < size) {
+            // compression made it shorter than the parts add up to
+            serialized = Arrays.copyOf(serialized, buffer.position());
+        }
 
-            // copy question bytes
-            for (DNSObject o : questions) {
-                tempBytes = o.serialize();
-                for (int i = 0; i < tempBytes.length; i++) {
-                    serialized[index] = tempBytes[i];
-                    index++;
-                }
-            }
+        for (int i = 0; i < count; i++) {
+            partCounts[i] = parts[i].getModificationCount();
+        }
+        serializedChanged = false;
+    }
 
-            // copy answer bytes
-            for (DNSAnswer o : answers) {
-                tempBytes = o.serialize();
-                for (int i = 0; i < tempBytes.length; i++) {
-                    serialized[index++] = tempBytes[i];
-                }
-            }
+    /**
+     * Brings serialized up to date without re-generating all of it.  Only
+     * possible when the packet still has the same parts as when it was
+     * last serialized, and every part that has changed since is still the
+     * same length and can be written again where it was.
+     *
+     * @return true if serialized is now up to date, false if it has to be
+     *         re-generated
+     */
+    private boolean patchSerialized() {
+        int count = partCount();
+        if (parts == null || parts.length != count) {
+            return false;
+        }
 
-            // copy authoritative answer bytes
-            for (DNSObject o : authoritativeAnswers) {
-                tempBytes = o.serialize();
-                for (int i = 0; i < tempBytes.length; i++) {
-                    serialized[index] = tempBytes[i];
-                    index++;
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            DNSObject current = part(i);
+            if (current != parts[i]) {
+                return false;
+            }
+            if (current.getModificationCount() != partCounts[i]) {
+                // compressed names make every offset after a part depend
+                // on it, so only uncompressed packets are patched
+                int length = partOffsets[i + 1] - partOffsets[i];
+                if (compression || current.getLength() != length) {
+                    return false;
                 }
+                changed = true;
             }
+        }
 
-            // copy additional answer bytes
-            for (DNSObject o : additionalAnswers) {
-                tempBytes = o.serialize();
-                for (int i = 0; i < tempBytes.length; i++) {
-                    serialized[index] = tempBytes[i];
-                    index++;
+        if (changed) {
+            ByteBuffer buffer = ByteBuffer.wrap(serialized);
+            for (int i = 0; i < count; i++) {
+                int modifications = parts[i].getModificationCount();
+                if (modifications != partCounts[i]) {
+                    buffer.position(partOffsets[i]);
+                    parts[i].writeTo(buffer);
+                    partCounts[i] = modifications;
                 }
             }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of parts in this packet, the header plus every
+     * question and answer.
+     *
+     * @return the number of parts
+     */
+    private int partCount() {
+        return 1 + questions.size() + answers.size()
+                 + authoritativeAnswers.size() + additionalAnswers.size();
+    }
 
-            //
-            // generate values
-            //
+    /**
+     * Returns a part of this packet by its place in the serialized packet,
+     * 0 being the header.
+     *
+     * @param index the index of the part
+     * @return the part
+     */
+    private DNSObject part(int index) {
+        if (index == 0) {
+            return header;
+        }
+        index--;
+        if (index < questions.size()) {
+            return questions.get(index);
+        }
+        index -= questions.size();
+        if (index < answers.size()) {
+            return answers.get(index);
+        }
+        index -= answers.size();
+        if (index < authoritativeAnswers.size()) {
+            return authoritativeAnswers.get(index);
+        }
+        return additionalAnswers.get(index - authoritativeAnswers.size());
+    }
 
+    /**
+     * Re-generates values if this packet has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (isValuesStale()) {
             // build header string
-            values.clear();
+            resetValues();
             values.put("Header", header.stateValues());           
 
             // build question strings
@@ -275,7 +503,8 @@ public class DNSPacketImpl extends AbstractDNSObject implements DNSPacket {
             }
             values.put("Additional Answers", temp);
 
-            changed = false;
+            valuesChanged = false;
+            valuesCount   = getModificationCount();
         }
     }
 }
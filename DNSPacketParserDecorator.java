@@ -1,19 +1,60 @@
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * A decorator for DNSPacket that parses a byte buffer to create a
  * DNSPacket.
  *
+ * In lazy mode only the header is parsed up front.  The start of each
+ * section is recorded and a section is parsed the first time one of its
+ * getters is called, so callers that only look at the header or the
+ * answers never pay for the authority and additional sections.
+ *
+ * A record filter can be set to only keep records of certain types.  Other
+ * records are skipped over using their data length and never created, so
+ * the header's counts can be larger than the lists handed out.
+ *
  * @author Chris Blades
  * @version 20/3/10
  */
 public class DNSPacketParserDecorator implements DNSPacket {
+    /** index of the question section */
+    private static final int QUESTIONS  = 0;
+
+    /** index of the answer section */
+    private static final int ANSWERS    = 1;
+
+    /** index of the authority section */
+    private static final int AUTHORITY  = 2;
+
+    /** index of the additional section */
+    private static final int ADDITIONAL = 3;
+
     /** The DNSPacket object this object wraps */
     private DNSPacket packet;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
+
+    /** names already decoded from this packet */
+    private DNSNameTable names;
+
+    /** wether sections are parsed when first asked for */
+    private boolean lazy;
+
+    /** the parsed header */
+    private DNSHeaderParserDecorator head;
+
+    /** where each section starts in the byte buffer */
+    private int[] sectionOffsets;
+
+    /** which sections have been parsed */
+    private boolean[] sectionParsed;
+
+    /** types of record to keep, null to keep everything */
+    private Set<DNSRecordTypeEnum> recordFilter;
 
     /**
      * Creates a new DNSPacketParserDecorator with the given byte
@@ -21,57 +62,233 @@ public class DNSPacketParserDecorator implements DNSPacket {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSPacketParserDecorator(IndexedArrayList<Byte> bytes) {
-        this.packet = new DNSPacketImpl();
-        this.bytes  = bytes;
+    public DNSPacketParserDecorator(ByteCursor bytes) {
+        this(bytes, false);
+    }
+
+    /**
+     * Creates a new DNSPacketParserDecorator with the given byte
+     * buffer that optionally parses sections only when they're asked for.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param lazy wether to put off parsing sections until they're used
+     */
+    public DNSPacketParserDecorator(ByteCursor bytes, boolean lazy) {
+        this.packet         = DNSObjectPool.get().getPacket();
+        this.bytes          = bytes;
+        this.lazy           = lazy;
+        this.names          = new DNSNameTable();
+        this.sectionOffsets = new int[4];
+        this.sectionParsed  = new boolean[4];
+    }
+
+    /**
+     * Sets the types of answer to keep.  Records of any other type are
+     * skipped without being parsed.  Only affects sections that haven't
+     * been parsed yet, so should be set before parse() is called.
+     *
+     * @param types the types of record to keep, or null to keep all
+     */
+    public void setRecordFilter(Set<DNSRecordTypeEnum> types) {
+        this.recordFilter = types;
+    }
+
+    /**
+     * Returns wether the record at the current position of the byte buffer
+     * passes the record filter.  If it doesn't, the buffer is moved past
+     * it.
+     *
+     * @return true if the record should be parsed
+     */
+    private boolean accept() {
+        if (recordFilter == null) {
+            return true;
+        }
+        DNSRecordTypeEnum type = DNSRecordTypeEnum.forCode(
+                                    DNSAnswerParserDecorator.peekType(bytes));
+        if (type != null && recordFilter.contains(type)) {
+            return true;
+        }
+        DNSAnswerParserDecorator.skip(bytes);
+        return false;
     }
 
     /**
-     * Parses the byte buffer to form a DNSPacket object.
+     * Parses the byte buffer to form a DNSPacket object.  In lazy mode
+     * only the header is parsed, the rest of the buffer is just skipped
+     * over to find where each section starts.
      */
     public void parse() {
 
-        DNSHeaderParserDecorator head = new DNSHeaderParserDecorator(bytes);
+        head = new DNSHeaderParserDecorator(bytes);
         head.parse();
         packet.setHeader(head);
         
-       
-        // parse questions
+        if (!lazy) {
+            for (int section = QUESTIONS; section <= ADDITIONAL; section++) {
+                sectionOffsets[section] = bytes.getPosition();
+                parseSection(section);
+            }
+            return;
+        }
+
+        // find questions
+        sectionOffsets[QUESTIONS] = bytes.getPosition();
         for (int i = 0; i < head.getNumQuestions(); i++) {
-            DNSQuestionParserDecorator current = 
-                                new DNSQuestionParserDecorator(bytes);
-            current.parse();
-            packet.setQuestion(current);
+            DNSQuestionParserDecorator.skip(bytes);
         }
 
-        // parse answers
+        // find answers
+        sectionOffsets[ANSWERS] = bytes.getPosition();
         for (int i = 0; i < head.getNumAnswers(); i++) {
-            DNSAnswerParserDecorator current = 
-                                new DNSAnswerParserDecorator(bytes);
-
-            current.parse();
-            packet.addAnswer(current);
+            DNSAnswerParserDecorator.skip(bytes);
         }
-        // parse authoritative answers
+
+        // find authoritative answers
+        sectionOffsets[AUTHORITY] = bytes.getPosition();
         for (int i = 0; i < head.getNumAuthorityAnswers(); i++) {
-            DNSAnswerParserDecorator current = 
-                                new DNSAnswerParserDecorator(bytes);
-            current.parse();
-            packet.addAuthoritativeAnswer(current);
+            DNSAnswerParserDecorator.skip(bytes);
         }
 
-        // parse additional answers
-        for (int i = 0; i < head.getNumAdditionalAnswers(); i++) {
-            DNSAnswerParserDecorator current = 
-                                new DNSAnswerParserDecorator(bytes);
-            current.parse();
-            packet.addAdditionalAnswer(current);
-        } 
+        // find additional answers, nothing to skip after them
+        sectionOffsets[ADDITIONAL] = bytes.getPosition();
     }
+
+    /**
+     * Parses the given section from where it starts in the byte buffer,
+     * unless it has already been parsed.
+     *
+     * @param section the section to parse
+     */
+    private void parseSection(int section) {
+        if (head == null || sectionParsed[section]) {
+            return;
+        }
+        sectionParsed[section] = true;
+        bytes.setPosition(sectionOffsets[section]);
+        DNSObjectPool pool = DNSObjectPool.get();
+
+        switch (section) {
+            case QUESTIONS:
+                // parse questions
+                for (int i = 0; i < head.getNumQuestions(); i++) {
+                    DNSQuestionParserDecorator current = 
+                                new DNSQuestionParserDecorator(bytes, names,
+                                                         pool.getQuestion());
+                    current.parse();
+                    packet.setQuestion(current);
+                }
+                break;
+            case ANSWERS:
+                // parse answers
+                for (int i = 0; i < head.getNumAnswers(); i++) {
+                    if (!accept()) {
+                        continue;
+                    }
+                    DNSAnswerParserDecorator current = 
+                                new DNSAnswerParserDecorator(bytes, names,
+                                                         pool.getAnswer());
+                    current.parse();
+                    packet.addAnswer(current);
+                }
+                break;
+            case AUTHORITY:
+                // parse authoritative answers
+                for (int i = 0; i < head.getNumAuthorityAnswers(); i++) {
+                    if (!accept()) {
+                        continue;
+                    }
+                    DNSAnswerParserDecorator current = 
+                                new DNSAnswerParserDecorator(bytes, names,
+                                                         pool.getAnswer());
+                    current.parse();
+                    packet.addAuthoritativeAnswer(current);
+                }
+                break;
+            case ADDITIONAL:
+                // parse additional answers
+                for (int i = 0; i < head.getNumAdditionalAnswers(); i++) {
+                    if (!accept()) {
+                        continue;
+                    }
+                    DNSAnswerParserDecorator current = 
+                                new DNSAnswerParserDecorator(bytes, names,
+                                                         pool.getAnswer());
+                    current.parse();
+                    packet.addAdditionalAnswer(current);
+                } 
+                break;
+        }
+    }
+
+    /**
+     * Parses any sections that haven't been parsed yet.
+     */
+    private void parseAll() {
+        for (int section = QUESTIONS; section <= ADDITIONAL; section++) {
+            parseSection(section);
+        }
+    }
+
+    /**
+     * Returns the DNSPacket this decorator has parsed into, with every
+     * section parsed.
+     *
+     * @return the parsed DNSPacket
+     */
     public DNSPacket getPacket() {
+        parseAll();
         return this.packet;
     }
     
+    /**
+     * Returns a copy of the message this decorator parses, exactly as it
+     * was received.
+     *
+     * @return the message in DNS format
+     */
+    public byte[] getBytes() {
+        return bytes.copy(0, bytes.size());
+    }
+
+    /**
+     * Gives the packet, questions and answers this decorator parsed into
+     * back to the calling thread's DNSObjectPool.  Neither this decorator
+     * nor anything it returned may be used afterwards.  The decorators
+     * wrapping each record are not pooled.
+     */
+    public void release() {
+        DNSObjectPool current = DNSObjectPool.get();
+        List<DNSQuestion> asked = packet.getQuestions();
+        for (int i = 0; i < asked.size(); i++) {
+            if (asked.get(i) instanceof DNSQuestionParserDecorator) {
+                current.release(((DNSQuestionParserDecorator)asked.get(i))
+                                    .getQuestion());
+            }
+        }
+        releaseAll(current, packet.getAnswers());
+        releaseAll(current, packet.getAuthoritativeAnswers());
+        releaseAll(current, packet.getAdditionalAnswers());
+        current.release(packet);
+        this.head = null;
+    }
+
+    /**
+     * Releases the answers a list of decorators parsed into.
+     *
+     * @param current the pool to release into
+     * @param list decorators created by parseSection()
+     */
+    private static void releaseAll(DNSObjectPool current,
+                                   List<DNSAnswer> list) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) instanceof DNSAnswerParserDecorator) {
+                current.release(((DNSAnswerParserDecorator)list.get(i))
+                                    .getAnswer());
+            }
+        }
+    }
+
     //
     // DNSPacket
     //
@@ -92,6 +309,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return a list of all the questions in this packet
      */
     public List<DNSQuestion> getQuestions() {
+        parseSection(QUESTIONS);
         return packet.getQuestions();
     }
 
@@ -101,6 +319,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return a list of all the answers in this packet
      */
     public List<DNSAnswer> getAnswers() {
+        parseSection(ANSWERS);
         return packet.getAnswers();
     }
 
@@ -110,6 +329,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return a list of all the authority answers in this packet
      */
     public List<DNSAnswer> getAuthoritativeAnswers() {
+        parseSection(AUTHORITY);
         return packet.getAuthoritativeAnswers();
     }
 
@@ -119,6 +339,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return a list of all the additional answers in this packet
      */
     public List<DNSAnswer> getAdditionalAnswers() {
+        parseSection(ADDITIONAL);
         return packet.getAdditionalAnswers();
     }
     
@@ -137,6 +358,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @param question the question contained in this packet.
      */
     public void setQuestion(DNSQuestion question) { 
+        parseSection(QUESTIONS);
         packet.setQuestion(question);
     }
 
@@ -146,6 +368,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @param answer the answer to add
      */
     public void addAnswer(DNSAnswer answer) {
+        parseSection(ANSWERS);
         packet.addAnswer(answer);
     }
 
@@ -155,6 +378,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @param answer the authority answer to add
      */
     public void addAuthoritativeAnswer(DNSAnswer answer) {
+        parseSection(AUTHORITY);
         packet.addAuthoritativeAnswer(answer);
     }
 
@@ -164,6 +388,7 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @param answer the additional answer to add
      */
     public void addAdditionalAnswer(DNSAnswer answer) {
+        parseSection(ADDITIONAL);
         packet.addAdditionalAnswer(answer);
     }
     
@@ -173,15 +398,26 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return the length of the parsed DNSPacket object.
      */ 
     public int getLength() {
+        parseAll();
         return packet.getLength();
     }
     
+    /**
+     * Returns the modification count of the parsed DNSPacket object.
+     *
+     * @return the modification count of this DNSPacket
+     */
+    public int getModificationCount() {
+        return packet.getModificationCount();
+    }
+    
     /** 
      * Returns a mapping of the state values of the parsed DNSPacket object.
      *
      * @return the state values of the parsed DNSPacket object.
      */
     public Map stateValues() {
+        parseAll();
         return packet.stateValues();
     }
 
@@ -193,6 +429,18 @@ public class DNSPacketParserDecorator implements DNSPacket {
      * @return the serialized version of the parsed dnsanswer object.
      */
     public byte[] serialize() {
+        parseAll();
         return packet.serialize();
     }
+
+    /**
+     * Writes the serialized version of the parsed DNSPacket into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        parseAll();
+        packet.writeTo(buffer);
+    }
 }
@@ -0,0 +1,308 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only DNSPacket that sits directly on top of a received datagram.
+ * Only the offsets of each record are worked out up front; every field is
+ * decoded from the datagram the first time it's asked for, and no record
+ * bytes are copied.  The header, questions and answers handed out are
+ * views over the same bytes.
+ *
+ * Views share one ByteCursor, so a DNSPacketView and everything it hands
+ * out should only be used by one thread at a time.
+ *
+ * @author Chris Blades
+ * @version 4/4/2010
+ */
+public class DNSPacketView implements DNSPacket {
+    /** the length of a DNS header */
+    private static final int HEADER_LENGTH = 12;
+
+    /** the datagram this view reads from */
+    private ByteCursor         bytes;
+
+    /** names already decoded from the datagram */
+    private DNSNameTable       names;
+
+    /** view of the header */
+    private DNSHeaderView      header;
+
+    /** offset of each question */
+    private int[]              questionOffsets;
+
+    /** offset of each answer */
+    private int[]              answerOffsets;
+
+    /** offset of each authority answer */
+    private int[]              authorityOffsets;
+
+    /** offset of each additional answer */
+    private int[]              additionalOffsets;
+
+    /** question views, created the first time they're asked for */
+    private List<DNSQuestion>  questions;
+
+    /** answer views, created the first time they're asked for */
+    private List<DNSAnswer>    answers;
+
+    /** authority answer views, created the first time they're asked for */
+    private List<DNSAnswer>    authoritativeAnswers;
+
+    /** additional answer views, created the first time they're asked for */
+    private List<DNSAnswer>    additionalAnswers;
+
+    /** fully parsed packet, only built if state values are asked for */
+    private DNSPacketParserDecorator parsed;
+
+    /**
+     * Creates a new DNSPacketView over the given datagram.
+     *
+     * @param bytes the received datagram
+     */
+    public DNSPacketView(byte[] bytes) {
+        this(new ByteCursor(bytes));
+    }
+
+    /**
+     * Creates a new DNSPacketView over length bytes of the given array
+     * starting at offset.
+     *
+     * @param bytes array holding the received datagram
+     * @param offset index of the first byte of the datagram
+     * @param length length of the datagram
+     */
+    public DNSPacketView(byte[] bytes, int offset, int length) {
+        this(new ByteCursor(bytes, offset, length));
+    }
+
+    /**
+     * Creates a new DNSPacketView over the given byte buffer, which must
+     * start at the first byte of the message since compression pointers
+     * are relative to it.
+     *
+     * @param bytes byte buffer holding exactly one message
+     */
+    public DNSPacketView(ByteCursor bytes) {
+        if (bytes.size() < HEADER_LENGTH) {
+            throw new DNSParseException("message of " + bytes.size()
+                                        + " bytes is shorter than a header",
+                                        0);
+        }
+        this.bytes  = bytes;
+        this.names  = new DNSNameTable();
+        this.header = new DNSHeaderView(bytes);
+
+        // find where every record starts
+        bytes.setPosition(HEADER_LENGTH);
+        questionOffsets = new int[header.getNumQuestions()];
+        for (int i = 0; i < questionOffsets.length; i++) {
+            questionOffsets[i] = bytes.getPosition();
+            DNSQuestionParserDecorator.skip(bytes);
+        }
+        answerOffsets     = findAnswers(header.getNumAnswers());
+        authorityOffsets  = findAnswers(header.getNumAuthorityAnswers());
+        additionalOffsets = findAnswers(header.getNumAdditionalAnswers());
+    }
+
+    /**
+     * Records the offsets of the next count answers in the byte buffer.
+     *
+     * @param count the number of answers in the section
+     * @return the offset of each answer
+     */
+    private int[] findAnswers(int count) {
+        int[] offsets = new int[count];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = bytes.getPosition();
+            DNSAnswerParserDecorator.skip(bytes);
+        }
+        return offsets;
+    }
+
+    /**
+     * Creates views over the answers at the given offsets.
+     *
+     * @param offsets the offset of each answer
+     * @return a read-only list of views
+     */
+    private List<DNSAnswer> viewAnswers(int[] offsets) {
+        DNSAnswer[] views = new DNSAnswer[offsets.length];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new DNSAnswerView(bytes, names, offsets[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(views));
+    }
+
+    /**
+     * Returns the fully parsed version of this packet, parsing it the
+     * first time it's needed.
+     *
+     * @return the fully parsed packet
+     */
+    private DNSPacket parsed() {
+        if (parsed == null) {
+            parsed = new DNSPacketParserDecorator(bytes.slice(0, bytes.size()));
+            parsed.parse();
+        }
+        return parsed;
+    }
+
+    //
+    // DNSPacket
+    //
+
+    /**
+     * Returns a view of the header of this packet.
+     *
+     * @return This packet's header
+     */
+    public DNSHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns views of all the questions contained in this packet.
+     *
+     * @return a read-only list of the questions in this packet
+     */
+    public List<DNSQuestion> getQuestions() {
+        if (questions == null) {
+            DNSQuestion[] views = new DNSQuestion[questionOffsets.length];
+            for (int i = 0; i < views.length; i++) {
+                views[i] = new DNSQuestionView(bytes, names,
+                                               questionOffsets[i]);
+            }
+            questions = Collections.unmodifiableList(Arrays.asList(views));
+        }
+        return questions;
+    }
+
+    /**
+     * Returns views of all the answers contained in this packet.
+     *
+     * @return a read-only list of the answers in this packet
+     */
+    public List<DNSAnswer> getAnswers() {
+        if (answers == null) {
+            answers = viewAnswers(answerOffsets);
+        }
+        return answers;
+    }
+
+    /**
+     * Returns views of all the authority answers contained in this packet.
+     *
+     * @return a read-only list of the authority answers in this packet
+     */
+    public List<DNSAnswer> getAuthoritativeAnswers() {
+        if (authoritativeAnswers == null) {
+            authoritativeAnswers = viewAnswers(authorityOffsets);
+        }
+        return authoritativeAnswers;
+    }
+
+    /**
+     * Returns views of all the additional answers contained in this packet.
+     *
+     * @return a read-only list of the additional answers in this packet
+     */
+    public List<DNSAnswer> getAdditionalAnswers() {
+        if (additionalAnswers == null) {
+            additionalAnswers = viewAnswers(additionalOffsets);
+        }
+        return additionalAnswers;
+    }
+
+    /**
+     * Not supported, DNSPacketView is read-only.
+     *
+     * @param header ignored
+     */
+    public void setHeader(DNSHeader header) {
+        throw new UnsupportedOperationException("DNSPacketView is read-only");
+    }
+
+    /**
+     * Not supported, DNSPacketView is read-only.
+     *
+     * @param question ignored
+     */
+    public void setQuestion(DNSQuestion question) {
+        throw new UnsupportedOperationException("DNSPacketView is read-only");
+    }
+
+    /**
+     * Not supported, DNSPacketView is read-only.
+     *
+     * @param answer ignored
+     */
+    public void addAnswer(DNSAnswer answer) {
+        throw new UnsupportedOperationException("DNSPacketView is read-only");
+    }
+
+    /**
+     * Not supported, DNSPacketView is read-only.
+     *
+     * @param answer ignored
+     */
+    public void addAuthoritativeAnswer(DNSAnswer answer) {
+        throw new UnsupportedOperationException("DNSPacketView is read-only");
+    }
+
+    /**
+     * Not supported, DNSPacketView is read-only.
+     *
+     * @param answer ignored
+     */
+    public void addAdditionalAnswer(DNSAnswer answer) {
+        throw new UnsupportedOperationException("DNSPacketView is read-only");
+    }
+
+    /**
+     * Returns the length of the datagram this view reads from.
+     *
+     * @return the length of the datagram
+     */
+    public int getLength() {
+        return bytes.size();
+    }
+
+    /**
+     * Returns 0, a packet view can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the datagram this view reads from.
+     *
+     * @return the datagram as received
+     */
+    public byte[] serialize() {
+        return bytes.copy(0, bytes.size());
+    }
+
+    /**
+     * Copies the datagram this view reads from into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        bytes.copyTo(0, bytes.size(), buffer);
+    }
+
+    /**
+     * Returns a mapping of the state values of this packet.  Needs every
+     * field, so the whole packet gets parsed the first time this is called.
+     *
+     * @return the state values of this packet
+     */
+    public Map stateValues() {
+        return parsed().stateValues();
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Thrown when a message can't be parsed because it is truncated or
+ * malformed, for example a name that is too long or a compression pointer
+ * that doesn't point backwards.
+ *
+ * @author Chris Blades
+ * @version 6/4/2010
+ */
+public class DNSParseException extends RuntimeException {
+    /** position within the message where the problem was found */
+    private int position;
+
+    /**
+     * Creates a new DNSParseException.
+     *
+     * @param message description of the problem
+     * @param position position within the message where it was found
+     */
+    public DNSParseException(String message, int position) {
+        super(message + " at position " + position);
+        this.position = position;
+    }
+
+    /**
+     * Returns the position within the message where the problem was found.
+     *
+     * @return the position of the problem
+     */
+    public int getPosition() {
+        return this.position;
+    }
+}
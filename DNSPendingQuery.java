@@ -0,0 +1,188 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A query handed to a DNSResolverEngine that may not have been answered
+ * yet.  Returned by DNSResolverEngine.query() so the caller can cancel it.
+ *
+ * @author Chris Blades
+ * @version 19/4/2010
+ */
+public class DNSPendingQuery {
+    /** the name asked about */
+    private String              url;
+
+    /** the type of record asked for */
+    private DNSRecordType       type;
+
+    /** the class of record asked for */
+    private DNSRecordClass      recordClass;
+
+    /** wether recursion is desired */
+    private boolean             recursionDesired;
+
+    /** told the outcome of the query */
+    private DNSResponseListener listener;
+
+    /** the engine sending the query, told when it's cancelled */
+    private DNSResolverEngine   engine;
+
+    /** time the query times out at, from System.nanoTime() */
+    private long                deadline;
+
+    /** identifier the query was sent with, -1 until it's been sent */
+    private int                 identifier;
+
+    /** index of the channel the query was sent on, -1 until it's sent */
+    private int                 channel;
+
+    /** wether the query has been answered, has failed or was cancelled */
+    private AtomicBoolean       done;
+
+    /**
+     * Creates a new DNSPendingQuery, only done by DNSResolverEngine.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param deadline time to give up at, from System.nanoTime()
+     * @param listener told the outcome of the query
+     * @param engine the engine sending the query
+     */
+    DNSPendingQuery(String url, DNSRecordType type,
+                    DNSRecordClass recordClass, boolean recursionDesired,
+                    long deadline, DNSResponseListener listener,
+                    DNSResolverEngine engine) {
+        this.url              = url;
+        this.type             = type;
+        this.recordClass      = recordClass;
+        this.recursionDesired = recursionDesired;
+        this.deadline         = deadline;
+        this.listener         = listener;
+        this.engine           = engine;
+        this.identifier       = -1;
+        this.channel          = -1;
+        this.done             = new AtomicBoolean(false);
+    }
+
+    /**
+     * Returns the name asked about.
+     *
+     * @return the name asked about
+     */
+    public String getName() {
+        return this.url;
+    }
+
+    /**
+     * Returns the type of record asked for.
+     *
+     * @return the type of record asked for
+     */
+    public DNSRecordType getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the class of record asked for.
+     *
+     * @return the class of record asked for
+     */
+    public DNSRecordClass getRecordClass() {
+        return this.recordClass;
+    }
+
+    /**
+     * Returns wether recursion was asked for.
+     *
+     * @return true if the recursion desired flag is set
+     */
+    public boolean isRecursionDesired() {
+        return this.recursionDesired;
+    }
+
+    /**
+     * Returns the identifier the query was sent with.
+     *
+     * @return the identifier, or -1 if it hasn't been sent yet
+     */
+    public int getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * Returns wether the query has been answered, has failed or was
+     * cancelled.
+     *
+     * @return true if nothing more will happen to this query
+     */
+    public boolean isDone() {
+        return done.get();
+    }
+
+    /**
+     * Stops waiting for an answer.  The listener won't be called, and the
+     * engine frees the query's identifier straight away.
+     *
+     * @return false if the query had already been answered, had failed or
+     *         was already cancelled
+     */
+    public boolean cancel() {
+        if (!done.compareAndSet(false, true)) {
+            return false;
+        }
+        engine.cancelled(this);
+        return true;
+    }
+
+    /**
+     * Hands a response to the listener, unless the query is already done.
+     *
+     * @param response the response to the query
+     */
+    void complete(DNSPacket response) {
+        if (done.compareAndSet(false, true)) {
+            listener.onResponse(this, response);
+        }
+    }
+
+    /**
+     * Tells the listener the query failed, unless it's already done.
+     *
+     * @param cause why the query failed
+     */
+    void fail(Exception cause) {
+        if (done.compareAndSet(false, true)) {
+            listener.onFailure(this, cause);
+        }
+    }
+
+    /**
+     * Returns the time the query times out at.
+     *
+     * @return the deadline, from System.nanoTime()
+     */
+    long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Returns the index of the channel the query was sent on.
+     *
+     * @return the channel index, or -1 if it hasn't been sent yet
+     */
+    int getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Records how the query was sent.
+     *
+     * @param channel the index of the channel it was sent on
+     * @param identifier the identifier it was sent with
+     */
+    void sent(int channel, int identifier) {
+        this.channel    = channel;
+        this.identifier = identifier;
+    }
+}
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import javax.swing.tree.DefaultMutableTreeNode;
 
 /**
@@ -120,6 +121,15 @@ public class DNSQuestionGuiDecorator extends DefaultMutableTreeNode
         return question.getLength();
     }
 
+    /**
+     * Returns the modification count of the underlying DNSQuestion.
+     *
+     * @return the modification count of this DNSQuestion
+     */
+    public int getModificationCount() {
+        return question.getModificationCount();
+    }
+
     /**
      * Returns the serialized version of the underlying DNSQuestion.
      *
@@ -129,6 +139,16 @@ public class DNSQuestionGuiDecorator extends DefaultMutableTreeNode
         return question.serialize();
     }
 
+    /**
+     * Writes the serialized version of the wrapped DNSQuestion into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        question.writeTo(buffer);
+    }
+
     /**
      * Returns a mapping of the state values of the underlying DNSQuestion
      *
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of DNSQuestion.
  *
@@ -49,8 +51,9 @@ public class DNSQuestionImpl extends AbstractDNSObject implements DNSQuestion {
      * @param name the new name of the record
      */
     public void setName(DNSUrl questionName){
+        replacing(this.questionName);
         this.questionName = questionName;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -59,8 +62,9 @@ public class DNSQuestionImpl extends AbstractDNSObject implements DNSQuestion {
      * @param type the new type of the record
      */
     public void setType(DNSRecordType questionType){
+        replacing(this.questionType);
         this.questionType = questionType;
-        changed = true;
+        markChanged();
     }
 
     /**
@@ -69,10 +73,34 @@ public class DNSQuestionImpl extends AbstractDNSObject implements DNSQuestion {
      * @param recordClass the new class of the record
      */
     public void setClass(DNSRecordClass questionClass){
+        replacing(this.questionClass);
         this.questionClass = questionClass;
-        changed = true;
+        markChanged();
     }
     
+    /**
+     * Drops the name, type and class of this question.  They have to be
+     * set again before it's used.
+     */
+    public void reset() {
+        modifications = getModificationCount();
+        this.questionName  = null;
+        this.questionType  = null;
+        this.questionClass = null;
+        markChanged();
+    }
+
+    /**
+     * Returns the number of times this question or its name, type or class
+     * have been changed.
+     *
+     * @return the modification count of this question
+     */
+    public int getModificationCount() {
+        return modifications + countOf(questionName)
+            + countOf(questionType) + countOf(questionClass);
+    }
+
     /**
      * Serialize should translate the DNSObject into an array of bytes
      * as per the DNS protocol.
@@ -80,27 +108,38 @@ public class DNSQuestionImpl extends AbstractDNSObject implements DNSQuestion {
      * @return a byte array representing this DNSObject
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return serialized;
     }
 
+    /**
+     * Writes this question into the given buffer, each part writing
+     * itself in turn.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        questionName.writeTo(buffer);
+        questionType.writeTo(buffer);
+        questionClass.writeTo(buffer);
+    }
+
     /**
      * Should return a description of the state of this DNSObject in the
      * format [label][value]
      * @return descriptions of the state of this DNSObject
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return values;
     }
     
     /**
-     * Generates serialized and values based on current state of this
-     * object.
+     * Re-generates serialized if this question has changed since it was last
+     * serialized.
      */
-    protected void generateTransient() {
-        // if there's been no change, don't bother regenerating anything
-        if (changed) {
+    protected void generateSerialized() {
+        if (isSerializedStale()) {
             //
             // construct serialized
             //
@@ -125,17 +164,27 @@ public class DNSQuestionImpl extends AbstractDNSObject implements DNSQuestion {
            serialized[serialized.length - 2] = classBytes[0];
            serialized[serialized.length - 1] = classBytes[1];
 
-            // 
-            // construct values
             //
+
+            serializedChanged = false;
+            serializedCount   = getModificationCount();
+        }
+    }
+
+    /**
+     * Re-generates values if this question has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (isValuesStale()) {
             
-            values.clear();
+            resetValues();
             values.put("Name", questionName.stateValues());
             values.put("Type", questionType.stateValues());
             values.put("Class", questionClass.stateValues());
-        
-            changed = false;
-        }
 
+            valuesChanged = false;
+            valuesCount   = getModificationCount();
+        }
     }
 }    
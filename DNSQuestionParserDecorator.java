@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSQuestion that parses a byte buffer to create a
  * DNSQuestion.
@@ -10,7 +12,10 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
     private DNSQuestion question;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
+
+    /** names already decoded from the same message */
+    private DNSNameTable names;
 
     /**
      * Creates a new DNSQuestionParserDecorator with the given byte
@@ -18,9 +23,45 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSQuestionParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSQuestionParserDecorator(ByteCursor bytes) {
+        this(bytes, new DNSNameTable());
+    }
+
+    /**
+     * Creates a new DNSQuestionParserDecorator with the given byte
+     * buffer that shares already decoded names with the rest of the
+     * message.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param names names already decoded from the same message
+     */
+    public DNSQuestionParserDecorator(ByteCursor bytes, DNSNameTable names) {
+        this(bytes, names, new DNSQuestionImpl());
+    }
+
+    /**
+     * Creates a new DNSQuestionParserDecorator with the given byte
+     * buffer that parses into the given DNSQuestion, such as one taken from
+     * a DNSObjectPool.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param names names already decoded from the same message
+     * @param question the DNSQuestion to parse into
+     */
+    public DNSQuestionParserDecorator(ByteCursor bytes, DNSNameTable names,
+                                      DNSQuestion question) {
         this.bytes = bytes;
-        this.question = new DNSQuestionImpl();
+        this.names = names;
+        this.question = question;
+    }
+
+    /**
+     * Returns the DNSQuestion this decorator parses into.
+     *
+     * @return the wrapped DNSQuestion
+     */
+    public DNSQuestion getQuestion() {
+        return this.question;
     }
     
 
@@ -32,7 +73,7 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
         // 
         // parse question name
         //
-        DNSUrlParserDecorator url = new DNSUrlParserDecorator(bytes);
+        DNSUrlParserDecorator url = new DNSUrlParserDecorator(bytes, names);
         url.parse();
         question.setName(url);
 
@@ -54,6 +95,18 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
         question.setClass(clss);
     }
 
+    /**
+     * Moves the byte buffer past the question at its current position
+     * without creating anything.
+     *
+     * @param bytes the byte buffer, positioned at the start of a question
+     */
+    public static void skip(ByteCursor bytes) {
+        DNSUrlParserDecorator.skipUrl(bytes);
+        // type and class
+        bytes.skip(4);
+    }
+
     //
     // DNSQuestion
     //
@@ -121,6 +174,15 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
         return question.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSQuestion object.
+     *
+     * @return the modification count of this DNSQuestion
+     */
+    public int getModificationCount() {
+        return question.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed dnsquestion object.
      * can't just return the byte buffer because we don't know what else is in
@@ -132,6 +194,16 @@ public class DNSQuestionParserDecorator implements DNSQuestion {
         return question.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSQuestion into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        question.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSQuestion object.
      *
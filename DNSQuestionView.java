@@ -0,0 +1,226 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only DNSQuestion that decodes its fields straight out of a
+ * received datagram the first time they're asked for.
+ *
+ * @author Chris Blades
+ * @version 4/4/2010
+ */
+public class DNSQuestionView implements DNSQuestion {
+    /** the datagram this view reads from */
+    private ByteCursor bytes;
+
+    /** names already decoded from the same message */
+    private DNSNameTable names;
+
+    /** position of the question within the datagram */
+    private int        offset;
+
+    /** position of the type field, -1 until the name has been skipped */
+    private int        fieldsOffset;
+
+    /** the decoded name, null until it's asked for */
+    private DNSUrl     name;
+
+    /** fully parsed question, only built if it has to be serialized */
+    private DNSQuestionParserDecorator parsed;
+
+    /**
+     * Creates a new DNSQuestionView over the question at the given position
+     * of the byte buffer.
+     *
+     * @param bytes byte buffer holding the whole message
+     * @param names names already decoded from the same message
+     * @param offset position of the question within the message
+     */
+    public DNSQuestionView(ByteCursor bytes, DNSNameTable names,
+                           int offset) {
+        this.bytes        = bytes;
+        this.names        = names;
+        this.offset       = offset;
+        this.fieldsOffset = -1;
+    }
+
+    /**
+     * Returns the position of the type field, skipping over the name the
+     * first time it's needed.
+     *
+     * @return the position of the type field
+     */
+    private int fieldsOffset() {
+        if (fieldsOffset < 0) {
+            bytes.setPosition(offset);
+            DNSUrlParserDecorator.skipUrl(bytes);
+            fieldsOffset = bytes.getPosition();
+        }
+        return fieldsOffset;
+    }
+
+    /**
+     * Returns the fully parsed question, parsing it the first time it's
+     * needed.
+     *
+     * @return the parsed question
+     */
+    private DNSQuestion parsed() {
+        if (parsed == null) {
+            bytes.setPosition(offset);
+            parsed = new DNSQuestionParserDecorator(bytes, names);
+            parsed.parse();
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the name of the question, decoding it the first time it's
+     * asked for.
+     *
+     * @return the name of the question
+     */
+    public DNSUrl getName() {
+        if (name == null) {
+            bytes.setPosition(offset);
+            DNSUrlParserDecorator url =
+                                new DNSUrlParserDecorator(bytes, names);
+            url.parse();
+            fieldsOffset = bytes.getPosition();
+            name = url;
+        }
+        return name;
+    }
+
+    /**
+     * Returns the type of the question.  A type that isn't one of
+     * DNSRecordTypeEnum keeps its number, as the parser does.
+     *
+     * @return the type of the question
+     */
+    public DNSRecordType getType() {
+        DNSRecordTypeEnum type = DNSRecordTypeEnum.forCode(getTypeCode());
+        if (type != null) {
+            return type;
+        }
+        DNSRecordTypeParserDecorator unknown =
+                new DNSRecordTypeParserDecorator(
+                                        bytes.slice(fieldsOffset(), 2));
+        unknown.parse();
+        return unknown;
+    }
+
+    /**
+     * Returns the numeric type of the question as it appears in the
+     * datagram.
+     *
+     * @return the type field of the question
+     */
+    public int getTypeCode() {
+        return bytes.getU16(fieldsOffset());
+    }
+
+    /**
+     * Returns the class of the question.  A class that isn't one of
+     * DNSRecordClassEnum keeps its number, as the parser does.
+     *
+     * @return the class of the question
+     */
+    public DNSRecordClass getRecordClass() {
+        DNSRecordClassEnum recordClass =
+                        DNSRecordClassEnum.forCode(getClassCode());
+        if (recordClass != null) {
+            return recordClass;
+        }
+        DNSRecordClassParserDecorator unknown =
+                new DNSRecordClassParserDecorator(
+                                        bytes.slice(fieldsOffset() + 2, 2));
+        unknown.parse();
+        return unknown;
+    }
+
+    /**
+     * Returns the numeric class of the question as it appears in the
+     * datagram.  OPT records carry their UDP payload size here.
+     *
+     * @return the class field of the question
+     */
+    public int getClassCode() {
+        return bytes.getU16(fieldsOffset() + 2);
+    }
+
+    /**
+     * Not supported, DNSQuestionView is read-only.
+     *
+     * @param name ignored
+     */
+    public void setName(DNSUrl name) {
+        throw new UnsupportedOperationException(
+                                        "DNSQuestionView is read-only");
+    }
+
+    /**
+     * Not supported, DNSQuestionView is read-only.
+     *
+     * @param type ignored
+     */
+    public void setType(DNSRecordType type) {
+        throw new UnsupportedOperationException(
+                                        "DNSQuestionView is read-only");
+    }
+
+    /**
+     * Not supported, DNSQuestionView is read-only.
+     *
+     * @param recordClass ignored
+     */
+    public void setClass(DNSRecordClass recordClass) {
+        throw new UnsupportedOperationException(
+                                        "DNSQuestionView is read-only");
+    }
+
+    /**
+     * Returns the length of this question once serialized with its name
+     * uncompressed.
+     *
+     * @return the length of this question
+     */
+    public int getLength() {
+        return parsed().getLength();
+    }
+
+    /**
+     * Returns 0, a question view can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns this question serialized with its name uncompressed, since
+     * the bytes in the datagram may point elsewhere in the message.
+     *
+     * @return this question serialized as per the DNS protocol
+     */
+    public byte[] serialize() {
+        return parsed().serialize();
+    }
+
+    /**
+     * Writes this question into the given buffer with its name uncompressed.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        parsed().writeTo(buffer);
+    }
+
+    /**
+     * Returns a mapping of the state values of this question.
+     *
+     * @return the state values of this question
+     */
+    public Map stateValues() {
+        return parsed().stateValues();
+    }
+}
@@ -0,0 +1,104 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The data section of a record whose type isn't interpreted, kept exactly
+ * as it appeared on the wire.
+ *
+ * @author Chris Blades
+ * @version 9/4/2010
+ */
+public class DNSRawData extends AbstractDNSObject implements DNSResource {
+    /** hex digits used to describe the data */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** data of a reset DNSRawData */
+    private static final byte[] EMPTY = new byte[0];
+
+    /** the data as it appeared on the wire */
+    private byte[] data;
+
+    /**
+     * Creates a new DNSRawData wrapping the given bytes.
+     *
+     * @param data the data section as it appeared on the wire
+     */
+    public DNSRawData(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Returns the data as a string of hex digits.
+     *
+     * @return the data in hex
+     */
+    public String getData() {
+        char[] hex = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            hex[i * 2]     = HEX[(data[i] >>> 4) & 0x0F];
+            hex[i * 2 + 1] = HEX[data[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Drops the data, leaving none.
+     */
+    public void reset() {
+        this.data = EMPTY;
+        markChanged();
+    }
+
+    /**
+     * Returns the data as it appeared on the wire.
+     *
+     * @return the data
+     */
+    public byte[] serialize() {
+        generateSerialized();
+        return this.serialized;
+    }
+
+    /**
+     * Writes the data as it appeared on the wire into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(data);
+    }
+
+    /**
+     * Returns a mapping of the state values of this data.
+     *
+     * @return the state values of this data
+     */
+    public Map stateValues() {
+        generateValues();
+        return this.values;
+    }
+
+    /**
+     * Re-generates serialized if this data has changed since it was last
+     * serialized.
+     */
+    protected void generateSerialized() {
+        if (serializedChanged) {
+            serialized = data;
+
+            serializedChanged = false;
+        }
+    }
+
+    /**
+     * Re-generates values if this data has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (valuesChanged) {
+            resetValues();
+            values.put("Data", getData());
+
+            valuesChanged = false;
+        }
+    }
+}
@@ -1,14 +1,21 @@
+import java.nio.ByteBuffer;
+
 /**
- * Basic implementation of DNSRecordClass using an Enum since
- * class will never (for the purposes of this program) be anytying other
- * than 1.
+ * Basic implementation of DNSRecordClass using an Enum of the classes
+ * this program knows about.
  *
  * @author Chris Blades
  * @version 3/12/2010
  */
 public enum DNSRecordClassEnum implements DNSRecordClass {
-    IN ("IN (Internet)", new byte[]{(byte)0x00, (byte)0x01});
-    
+    IN  ("IN (Internet)",  new byte[]{(byte)0x00, (byte)0x01}),
+    CH  ("CH (Chaos)",     new byte[]{(byte)0x00, (byte)0x03}),
+    HS  ("HS (Hesiod)",    new byte[]{(byte)0x00, (byte)0x04}),
+    ANY ("* (Any Class)",  new byte[]{(byte)0x00, (byte)0xFF});
+
+    /** all classes, cached so lookups don't copy values() */
+    private static final DNSRecordClassEnum[] CLASSES = values();
+
     /** length of the class field */
     private static final int CLASS_LENGTH = 2;
 
@@ -34,6 +41,31 @@ public enum DNSRecordClassEnum implements DNSRecordClass {
         values.put(name, serialized[1]);
     }
 
+    /**
+     * Returns the DNSRecordClassEnum with the given numeric value, or null
+     * if the value isn't one of the known classes.
+     *
+     * @param code the numeric value of the class as it appears on the wire
+     * @return the matching class, or null
+     */
+    public static DNSRecordClassEnum forCode(int code) {
+        for (DNSRecordClassEnum recordClass : CLASSES) {
+            if (recordClass.getCode() == code) {
+                return recordClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the numeric value of this class as it appears on the wire.
+     *
+     * @return the numeric value of this class
+     */
+    public int getCode() {
+        return ((serialized[0] & 0xFF) << 8) | (serialized[1] & 0xFF);
+    }
+
     /**
      * Returns the name of this class.
      *
@@ -52,6 +84,15 @@ public enum DNSRecordClassEnum implements DNSRecordClass {
         return this.CLASS_LENGTH;
     }
 
+    /**
+     * Returns 0, classes can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
     /**
      * Returns a byte representation of this class.
      *
@@ -61,6 +102,15 @@ public enum DNSRecordClassEnum implements DNSRecordClass {
         return this.serialized;
     }
 
+    /**
+     * Writes the 2 byte value of this class into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(serialized);
+    }
+
     /**
      * Returns a mapping of the state values of this class.
      *
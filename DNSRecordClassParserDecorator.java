@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSRecordClass that parses a byte buffer to create a
  * DNSRecordClass.
@@ -9,8 +11,14 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
     /** The DNSRecordClass object this object wraps */
     private DNSRecordClass recClass;
 
+    /** the numeric class as it appeared on the wire */
+    private int code;
+
+    /** wether the class is one of DNSRecordClassEnum */
+    private boolean known;
+
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
 
     /**
      * Creates a new DNSRecordClassParserDecorator with the given byte
@@ -18,10 +26,11 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSRecordClassParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSRecordClassParserDecorator(ByteCursor bytes) {
         this.bytes = bytes;
-        // cheating a bit, this will always be true
-        recClass = DNSRecordClassEnum.IN;
+        recClass = DNSRecordClassEnum.ANY;
+        code = DNSRecordClassEnum.ANY.getCode();
+        known = true;
     }
 
     /**
@@ -29,18 +38,36 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
      *
      */
     public void parse() {
-        // don't do anything but advance buffer so it will be in the right
-        // position
-        bytes.getNext();
-        bytes.getNext();
+        int numClass = bytes.readU16();
+        code = numClass;
+        DNSRecordClassEnum match = DNSRecordClassEnum.forCode(numClass);
+        known = match != null;
+        if (known) {
+            recClass = match;
+        }
     }
 
     /**
-     * Returns a string represention of this record class.
+     * Returns the numeric class as it appeared on the wire, even if it
+     * isn't one of the known classes.  OPT records carry their UDP payload
+     * size here.
+     *
+     * @return the numeric class
+     */
+    public int getCode() {
+        return this.code;
+    }
+
+    /**
+     * Returns a string represention of this record class, "CLASS" and the
+     * number for classes that aren't known.
      *
      * @return a string representation of this record class.
      */
     public String getName() {
+        if (!known) {
+            return "CLASS" + code;
+        }
         return recClass.getName();
     }
 
@@ -53,6 +80,15 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
         return recClass.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSRecordClass object.
+     *
+     * @return the modification count of this DNSRecordClass
+     */
+    public int getModificationCount() {
+        return recClass.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed DNSRecordClass object.
      * can't just return the byte buffer because we don't know what else is in
@@ -61,9 +97,26 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
      * @return the serialized version of the parsed DNSRecordClass object.
      */
     public byte[] serialize() {
+        if (!known) {
+            return new byte[]{(byte)(code >>> 8), (byte)code};
+        }
         return recClass.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSRecordClass into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (!known) {
+            buffer.putShort((short)code);
+            return;
+        }
+        recClass.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSRecordClass
      * object.
@@ -71,6 +124,11 @@ public class DNSRecordClassParserDecorator implements DNSRecordClass {
      * @return the state values of the parsed DNSRecordClass object.
      */
     public Map stateValues() {
+        if (!known) {
+            Map<Object, Object> values = new Map<Object, Object>();
+            values.put(getName(), code);
+            return values;
+        }
         return recClass.stateValues();
     }
 }
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 
 /**
  * Basic implementation of DNSRecordType using an Enum since
@@ -14,10 +16,16 @@ public enum DNSRecordTypeEnum implements DNSRecordType {
                                                        (byte)0x02}),
     CNAME   ("CNAME (Canonical Name)",          new byte[]{(byte)0x00,
                                                        (byte)0x05}),
+    SOA     ("SOA (Start of Authority)",        new byte[]{(byte)0x00,
+                                                       (byte)0x06}),
     PTR     ("PTR (Domain Name Pointer)",       new byte[]{(byte)0x00,
                                                        (byte)0x0C}),
     MX      ("MS (Mail Exchange)",              new byte[]{(byte)0x00,
                                                        (byte)0x0F}),
+    TXT     ("TXT (Text)",                      new byte[]{(byte)0x00,
+                                                       (byte)0x10}),
+    AAAA    ("AAAA (IPv6 Host Record)",         new byte[]{(byte)0x00,
+                                                       (byte)0x1C}),
     SRV     ("SRV (Service Selection)",         new byte[]{(byte)0x00,
                                                        (byte)0x21}),
     IXFR    ("IXFR (Incremental Zone Transfer)", new byte[]{(byte)0x00,
@@ -26,6 +34,8 @@ public enum DNSRecordTypeEnum implements DNSRecordType {
                                                        (byte)0xFC}),
     ALL     ("* (All Records)",                  new byte[]{(byte)0x00,
                                                        (byte)0xFF});
+    /** all types, cached so lookups don't copy values() */
+    private static final DNSRecordTypeEnum[] TYPES = values();
     /** length of the type field */
     private static final int TYPE_LENGTH = 2;
     /** Name of this DNSRecordType */
@@ -48,6 +58,31 @@ public enum DNSRecordTypeEnum implements DNSRecordType {
         values.put(name, serialized[1]);
     }
 
+    /**
+     * Returns the DNSRecordTypeEnum with the given numeric value, or null if
+     * the value isn't one of the known types.
+     *
+     * @param code the numeric value of the type as it appears on the wire
+     * @return the matching type, or null
+     */
+    public static DNSRecordTypeEnum forCode(int code) {
+        for (DNSRecordTypeEnum type : TYPES) {
+            if (type.getCode() == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the numeric value of this type as it appears on the wire.
+     *
+     * @return the numeric value of this type
+     */
+    public int getCode() {
+        return ((serialized[0] & 0xFF) << 8) | (serialized[1] & 0xFF);
+    }
+
     /**
      * Returns the name of this type.
      *
@@ -66,6 +101,15 @@ public enum DNSRecordTypeEnum implements DNSRecordType {
         return this.TYPE_LENGTH;
     }
 
+    /**
+     * Returns 0, types can't be changed.
+     *
+     * @return 0
+     */
+    public int getModificationCount() {
+        return 0;
+    }
+
     /**
      * Returns a byte representation of this type.
      *
@@ -74,6 +118,15 @@ public enum DNSRecordTypeEnum implements DNSRecordType {
     public byte[] serialize() {
         return this.serialized;
     }
+
+    /**
+     * Writes the 2 byte value of this type into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(serialized);
+    }
     
     /**
      * Returns a mapping of the state values of this type.
@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSRecordType that parses a byte buffer to create a
  * DNSRecordType.
@@ -9,8 +11,14 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
     /** The DNSRecordType object this object wraps */
     private DNSRecordType type;
 
+    /** the numeric type as it appeared on the wire */
+    private int code;
+
+    /** wether the type is one of DNSRecordTypeEnum */
+    private boolean known;
+
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
 
     /**
      * Creates a new DNSRecordTypeParserDecorator with the given byte
@@ -18,8 +26,10 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSRecordTypeParserDecorator(IndexedArrayList<Byte> bytes) {
+    public DNSRecordTypeParserDecorator(ByteCursor bytes) {
         this.type = DNSRecordTypeEnum.ALL;
+        this.code = DNSRecordTypeEnum.ALL.getCode();
+        this.known = true;
         this.bytes = bytes;
     }
 
@@ -28,27 +38,35 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
      *
      */
     public void parse() {
-        bytes.getNext();  //throw away, we won't use first byte
-        int numType = (int)(bytes.getNext() & 0xFF);
-        switch (numType) {
-            case 1   : type = DNSRecordTypeEnum.A; break;
-            case 2   : type = DNSRecordTypeEnum.NS; break;
-            case 5   : type = DNSRecordTypeEnum.CNAME; break;
-            case 12  : type = DNSRecordTypeEnum.PTR; break;
-            case 15  : type = DNSRecordTypeEnum.MX; break;
-            case 33  : type = DNSRecordTypeEnum.SRV; break;
-            case 251 : type = DNSRecordTypeEnum.IXFR; break;
-            case 252 : type = DNSRecordTypeEnum.AXFR; break;
-            case 255 : type = DNSRecordTypeEnum.ALL; break;
+        int numType = bytes.readU16();
+        code = numType;
+        DNSRecordTypeEnum match = DNSRecordTypeEnum.forCode(numType);
+        known = match != null;
+        if (known) {
+            type = match;
         }
     }
     
     /**
-     * Returns a string representation of this record type
+     * Returns the numeric type as it appeared on the wire, even if it
+     * isn't one of the known types.
+     *
+     * @return the numeric type
+     */
+    public int getCode() {
+        return this.code;
+    }
+
+    /**
+     * Returns a string representation of this record type, "TYPE" and
+     * the number for types that aren't known.
      *
      * @return a string representation of this record type
      */
     public String getName() {
+        if (!known) {
+            return "TYPE" + code;
+        }
         return type.getName();
     }
     
@@ -62,6 +80,15 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
         return type.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSRecordType object.
+     *
+     * @return the modification count of this DNSRecordType
+     */
+    public int getModificationCount() {
+        return type.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed DNSRecordType object.
      * can't just return the byte buffer because we don't know what else is in
@@ -70,9 +97,26 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
      * @return the serialized version of the parsed DNSRecordType object.
      */
     public byte[] serialize() {
+        if (!known) {
+            return new byte[]{(byte)(code >>> 8), (byte)code};
+        }
         return type.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSRecordType into the
+     * given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (!known) {
+            buffer.putShort((short)code);
+            return;
+        }
+        type.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSRecordType
      * object.
@@ -80,6 +124,11 @@ public class DNSRecordTypeParserDecorator implements DNSRecordType {
      * @return the state values of the parsed DNSRecordType object.
      */
     public Map stateValues() {
+        if (!known) {
+            Map<Object, Object> values = new Map<Object, Object>();
+            values.put(getName(), code);
+            return values;
+        }
         return type.stateValues();
     }
 }
@@ -1,6 +1,5 @@
-import java.net.DatagramSocket;
-import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.io.IOException;
 import javax.swing.JFrame;
 import javax.swing.JDialog;
@@ -54,26 +53,17 @@ public class DNSResolver {
             DNSFactory factory = new DNSFactory();
             DNSPacket question = factory.getPacket(url, recursion);
             // resolve question
-            DatagramSocket sock = new DatagramSocket(); 
-            sock.send(new DatagramPacket(question.serialize(),
-                                         question.serialize().length,
-                                         InetAddress.getByName(DNS_SERVER),
-                                         DNS_PORT));    
-
-            DatagramPacket get = new DatagramPacket(new byte[512], 512);
-            sock.receive(get);
-            
-            // parse response
-            byte[] packetbytes = get.getData();
-            Byte[] packetBytes = new Byte[packetbytes.length];
-            for (int i = 0; i < packetbytes.length; i++) {
-                packetBytes[i] = packetbytes[i];
+            DNSDatagramTransport transport = new DNSDatagramTransport();
+            DNSPacketParserDecorator response;
+            try {
+                transport.send(question, new InetSocketAddress(
+                                    InetAddress.getByName(DNS_SERVER),
+                                    DNS_PORT));
+                response = transport.receivePacket();
+            } finally {
+                transport.close();
             }
-            DNSPacketParserDecorator response = 
-                                new DNSPacketParserDecorator(
-                                new IndexedArrayList<Byte>(packetBytes));
-            
-            response.parse();
+
             //
             // display question
             DNSPacketGuiDecorator gui =
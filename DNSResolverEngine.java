@@ -0,0 +1,659 @@
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Resolves any number of queries at once against one DNS server, using a
+ * few non-blocking DatagramChannels and a single thread.  Queries are
+ * handed over with query() from any thread and sent as soon as the
+ * engine's thread gets to them.  Responses are matched to their queries
+ * by identifier and question, and the query's listener is told as soon as
+ * its response arrives, or once it times out.
+ *
+ * Every query on a channel has a different identifier, picked at random
+ * so responses are hard to forge.  A channel has at most 16384 queries in
+ * flight; queries beyond what all the channels can take wait until others
+ * finish.  Each channel is connected to the server, so datagrams from
+ * anywhere else are never seen.
+ *
+ * @author Chris Blades
+ * @version 19/4/2010
+ */
+public class DNSResolverEngine {
+    /** milliseconds a query waits for its response when not told */
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    /** number of channels opened when not told */
+    private static final int DEFAULT_CHANNELS = 4;
+
+    /** most queries in flight on one channel, a quarter of the ids */
+    private static final int MAX_IN_FLIGHT = 16384;
+
+    /**
+     * most queries sent before reading responses again, so responses
+     * aren't dropped by a full socket buffer while a burst is sent
+     */
+    private static final int MAX_SENDS_PER_ROUND = 128;
+
+    /** receive buffer asked for on each channel */
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * finished queries allowed to wait in deadlines before they're
+     * cleared out, besides one for every query still running
+     */
+    private static final int MAX_FINISHED_SLACK = 64;
+
+    /** length of a DNS header */
+    private static final int HEADER_LENGTH = 12;
+
+    /** nanoseconds in a millisecond */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** server every query is sent to */
+    private SocketAddress                           server;
+
+    /** milliseconds a query waits for its response */
+    private long                                    timeout;
+
+    /** encodes every query */
+    private DNSFactory                              factory;
+
+    /** one transport per channel */
+    private DNSDatagramTransport[]                  transports;
+
+    /** the selection key of each channel */
+    private SelectionKey[]                          keys;
+
+    /** queries in flight on each channel, by identifier */
+    private List<HashMap<Integer, DNSPendingQuery>> inFlight;
+
+    /** waits for responses on every channel */
+    private Selector                                selector;
+
+    /** queries handed over but not yet seen by the engine's thread */
+    private List<DNSPendingQuery>                   submitted;
+
+    /** queries cancelled but not yet forgotten by the engine's thread */
+    private List<DNSPendingQuery>                   cancellations;
+
+    /** queries waiting to be sent, only used by the engine's thread */
+    private LinkedList<DNSPendingQuery>             backlog;
+
+    /**
+     * every query not yet timed out, soonest deadline first, along with
+     * some that have finished and haven't been cleared out yet
+     */
+    private PriorityQueue<DNSPendingQuery>          deadlines;
+
+    /** picks identifiers */
+    private SecureRandom                            random;
+
+    /** channel the next query is tried on first */
+    private int                                     nextChannel;
+
+    /** wether the engine is still running */
+    private volatile boolean                        open;
+
+    /** the engine's thread */
+    private Thread                                  thread;
+
+    /**
+     * Creates and starts a new DNSResolverEngine with 4 channels and a 5
+     * second timeout.
+     *
+     * @param server the DNS server to send queries to
+     * @throws IOException if the channels can't be opened
+     */
+    public DNSResolverEngine(SocketAddress server) throws IOException {
+        this(server, DEFAULT_CHANNELS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates and starts a new DNSResolverEngine.
+     *
+     * @param server the DNS server to send queries to
+     * @param channels the number of channels to open
+     * @param timeout milliseconds a query waits for its response unless
+     *                it's given its own timeout
+     * @throws IOException if the channels can't be opened
+     */
+    public DNSResolverEngine(SocketAddress server, int channels,
+                             long timeout) throws IOException {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("channels " + channels);
+        }
+        this.server     = server;
+        this.timeout    = timeout;
+        this.factory    = new DNSFactory();
+        this.transports = new DNSDatagramTransport[channels];
+        this.keys       = new SelectionKey[channels];
+        this.inFlight   = new ArrayList<HashMap<Integer, DNSPendingQuery>>();
+        this.submitted  = new ArrayList<DNSPendingQuery>();
+        this.cancellations = new ArrayList<DNSPendingQuery>();
+        this.backlog    = new LinkedList<DNSPendingQuery>();
+        this.deadlines  = new PriorityQueue<DNSPendingQuery>(16,
+                                    new Comparator<DNSPendingQuery>() {
+            public int compare(DNSPendingQuery a, DNSPendingQuery b) {
+                return Long.signum(a.getDeadline() - b.getDeadline());
+            }
+        });
+        this.random     = new SecureRandom();
+        this.selector   = Selector.open();
+
+        DNSBufferPool buffers = new DNSBufferPool();
+        try {
+            for (int i = 0; i < channels; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                transports[i] = new DNSDatagramTransport(channel, buffers);
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                                  Integer.valueOf(RECEIVE_BUFFER_SIZE));
+                channel.connect(server);
+                keys[i] = channel.register(selector, SelectionKey.OP_READ,
+                                           Integer.valueOf(i));
+                inFlight.add(new HashMap<Integer, DNSPendingQuery>());
+            }
+        } catch (IOException e) {
+            closeChannels();
+            selector.close();
+            throw e;
+        }
+
+        this.open   = true;
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                runEngine();
+            }
+        }, "DNSResolverEngine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sends a query with the engine's timeout.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param listener told the outcome of the query
+     * @return the query, which can be cancelled
+     */
+    public DNSPendingQuery query(String url, DNSRecordType type,
+                                 DNSRecordClass recordClass,
+                                 boolean recursionDesired,
+                                 DNSResponseListener listener) {
+        return query(url, type, recordClass, recursionDesired, timeout,
+                     listener);
+    }
+
+    /**
+     * Sends a query.  Returns straight away, the listener is told the
+     * outcome on the engine's thread.  If the engine has been closed the
+     * listener is told so before this returns.
+     *
+     * @param url the name to ask about
+     * @param type the type of record to ask for
+     * @param recordClass the class of record to ask for
+     * @param recursionDesired wether to set the recursion desired flag
+     * @param timeout milliseconds to wait for the response, counted from
+     *                now
+     * @param listener told the outcome of the query
+     * @return the query, which can be cancelled
+     */
+    public DNSPendingQuery query(String url, DNSRecordType type,
+                                 DNSRecordClass recordClass,
+                                 boolean recursionDesired, long timeout,
+                                 DNSResponseListener listener) {
+        DNSPendingQuery query = new DNSPendingQuery(url, type, recordClass,
+                    recursionDesired,
+                    System.nanoTime() + timeout * NANOS_PER_MILLI, listener,
+                    this);
+        boolean accepted;
+        synchronized (submitted) {
+            accepted = open;
+            if (accepted) {
+                submitted.add(query);
+            }
+        }
+        if (accepted) {
+            selector.wakeup();
+        } else {
+            query.fail(new IOException("resolver engine closed"));
+        }
+        return query;
+    }
+
+    /**
+     * Hands a cancelled query over to the engine's thread so it can free
+     * the query's identifier.  Only called by DNSPendingQuery.cancel().
+     *
+     * @param query the cancelled query
+     */
+    void cancelled(DNSPendingQuery query) {
+        synchronized (submitted) {
+            if (!open) {
+                return;
+            }
+            cancellations.add(query);
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the engine and closes its channels.  Every query that hasn't
+     * been answered fails.
+     */
+    public void close() {
+        synchronized (submitted) {
+            open = false;
+        }
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The engine's thread: sends queries, reads responses and times out
+     * queries until the engine is closed.
+     */
+    private void runEngine() {
+        IOException failure = null;
+        try {
+            while (open) {
+                takeSubmitted();
+                long wait = expire();
+                if (sendBacklog()) {
+                    // more to send, only pick up what's already arrived
+                    selector.selectNow();
+                } else {
+                    selector.select(wait);
+                }
+
+                Iterator<SelectionKey> ready =
+                                        selector.selectedKeys().iterator();
+                while (ready.hasNext()) {
+                    SelectionKey key = ready.next();
+                    ready.remove();
+                    int index = ((Integer)key.attachment()).intValue();
+                    if (key.isValid() && key.isReadable()) {
+                        receive(index);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        // room again, the backlog is sent next time round
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            shutDown(failure);
+        }
+    }
+
+    /**
+     * Moves every query handed over by query() into the backlog, and
+     * forgets every query cancelled since last time.
+     */
+    private void takeSubmitted() {
+        synchronized (submitted) {
+            for (int i = 0; i < submitted.size(); i++) {
+                DNSPendingQuery query = submitted.get(i);
+                if (query.isDone()) {
+                    // cancelled before the engine saw it
+                    continue;
+                }
+                backlog.add(query);
+                deadlines.add(query);
+            }
+            submitted.clear();
+            for (int i = 0; i < cancellations.size(); i++) {
+                forget(cancellations.get(i));
+            }
+            cancellations.clear();
+        }
+        clearFinished();
+    }
+
+    /**
+     * Clears finished queries out of deadlines once they outnumber the
+     * queries still running, so answered and cancelled queries don't pile
+     * up there until their deadlines pass.
+     */
+    private void clearFinished() {
+        int running = backlog.size();
+        for (int i = 0; i < inFlight.size(); i++) {
+            running += inFlight.get(i).size();
+        }
+        if (deadlines.size() <= 2 * running + MAX_FINISHED_SLACK) {
+            return;
+        }
+        Iterator<DNSPendingQuery> queries = deadlines.iterator();
+        while (queries.hasNext()) {
+            if (queries.next().isDone()) {
+                queries.remove();
+            }
+        }
+    }
+
+    /**
+     * Sends queries from the backlog until it's empty, every channel has
+     * as many queries in flight as it can take, a channel has no room to
+     * send or MAX_SENDS_PER_ROUND have been sent.
+     *
+     * @return true if it stopped only because MAX_SENDS_PER_ROUND were
+     *         sent, so it should be called again straight away
+     */
+    private boolean sendBacklog() {
+        int sends = 0;
+        while (!backlog.isEmpty()) {
+            if (sends == MAX_SENDS_PER_ROUND) {
+                return true;
+            }
+            DNSPendingQuery query = backlog.getFirst();
+            if (query.isDone()) {
+                backlog.removeFirst();
+                continue;
+            }
+            int index = pickChannel();
+            if (index < 0) {
+                // every channel is full, wait for responses
+                return false;
+            }
+
+            HashMap<Integer, DNSPendingQuery> queries = inFlight.get(index);
+            int identifier;
+            do {
+                identifier = random.nextInt(0x10000);
+            } while (queries.containsKey(Integer.valueOf(identifier)));
+
+            try {
+                if (!transports[index].sendQuery(factory, query.getName(),
+                                        query.getType(),
+                                        query.getRecordClass(),
+                                        query.isRecursionDesired(),
+                                        identifier, server)) {
+                    // no room, wait until the channel can be written
+                    keys[index].interestOps(SelectionKey.OP_READ
+                                            | SelectionKey.OP_WRITE);
+                    return false;
+                }
+            } catch (IOException e) {
+                backlog.removeFirst();
+                fail(query, e);
+                continue;
+            } catch (IllegalArgumentException e) {
+                // the name couldn't be encoded
+                backlog.removeFirst();
+                fail(query, e);
+                continue;
+            }
+            backlog.removeFirst();
+            query.sent(index, identifier);
+            queries.put(Integer.valueOf(identifier), query);
+            sends++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of a channel with room for another query, trying
+     * each in turn.
+     *
+     * @return the index of a channel, or -1 if every channel is full
+     */
+    private int pickChannel() {
+        for (int i = 0; i < transports.length; i++) {
+            int index = (nextChannel + i) % transports.length;
+            if (inFlight.get(index).size() < MAX_IN_FLIGHT) {
+                nextChannel = (index + 1) % transports.length;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fails every query whose deadline has passed.
+     *
+     * @return milliseconds until the next deadline, or 0 if no query is
+     *         waiting
+     */
+    private long expire() {
+        long now = System.nanoTime();
+        while (!deadlines.isEmpty()) {
+            DNSPendingQuery query = deadlines.peek();
+            long left = query.getDeadline() - now;
+            if (left > 0) {
+                // round up so the select doesn't return just before it
+                return (left + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+            }
+            deadlines.poll();
+            if (query.isDone()) {
+                // answered or cancelled, already forgotten
+                continue;
+            }
+            forget(query);
+            fail(query, new SocketTimeoutException("no response for "
+                                                   + query.getName()));
+        }
+        return 0;
+    }
+
+    /**
+     * Reads every datagram waiting on a channel and hands each to the
+     * query it answers.
+     *
+     * @param index the index of the channel
+     * @throws IOException if reading fails
+     */
+    private void receive(int index) throws IOException {
+        DNSDatagramTransport transport = transports[index];
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = transport.receive();
+            } catch (PortUnreachableException e) {
+                // the server isn't listening, its queries will time out
+                continue;
+            }
+            if (buffer == null) {
+                return;
+            }
+            try {
+                dispatch(index, buffer);
+            } finally {
+                transport.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Hands a datagram to the query it answers.  Datagrams that don't
+     * answer a query in flight on the channel, or can't be parsed, are
+     * dropped, leaving the query waiting for the real response.  Anything
+     * a malformed datagram makes the parser throw only drops the
+     * datagram, so a stray or forged packet can't stop the engine.
+     *
+     * @param index the index of the channel the datagram arrived on
+     * @param buffer the datagram
+     */
+    private void dispatch(int index, ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return;
+        }
+        HashMap<Integer, DNSPendingQuery> queries = inFlight.get(index);
+        Integer identifier =
+                Integer.valueOf(buffer.getShort(buffer.position()) & 0xFFFF);
+        DNSPendingQuery query = queries.get(identifier);
+        if (query == null) {
+            return;
+        }
+
+        DNSPacketParserDecorator response;
+        try {
+            response = new DNSPacketParserDecorator(new ByteCursor(buffer));
+            response.parse();
+            if (!answers(query, response)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            // DNSParseException, or a record the objects won't hold
+            return;
+        }
+
+        queries.remove(identifier);
+        try {
+            query.complete(response);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+    }
+
+    /**
+     * Returns wether a response answers the given query: it's a response
+     * with the query's question in it.
+     *
+     * @param query the query
+     * @param response the response
+     * @return true if the response answers the query
+     */
+    private static boolean answers(DNSPendingQuery query,
+                                   DNSPacket response) {
+        if (response.getHeader().getFlags().isRequest()
+                || response.getQuestions().size() != 1) {
+            return false;
+        }
+        DNSQuestion question = response.getQuestions().get(0);
+        return sameName(query.getName(), question.getName().getData())
+            && Arrays.equals(query.getType().serialize(),
+                             question.getType().serialize())
+            && Arrays.equals(query.getRecordClass().serialize(),
+                             question.getRecordClass().serialize());
+    }
+
+    /**
+     * Returns wether two names are the same, ignoring case and a trailing
+     * dot.
+     *
+     * @param a a name
+     * @param b another name
+     * @return true if they're the same name
+     */
+    private static boolean sameName(String a, String b) {
+        int aLength = a.endsWith(".") ? a.length() - 1 : a.length();
+        int bLength = b.endsWith(".") ? b.length() - 1 : b.length();
+        return aLength == bLength
+            && a.regionMatches(true, 0, b, 0, aLength);
+    }
+
+    /**
+     * Stops keeping a query's identifier in use.
+     *
+     * @param query the query
+     */
+    private void forget(DNSPendingQuery query) {
+        if (query.getChannel() < 0) {
+            return;
+        }
+        HashMap<Integer, DNSPendingQuery> queries =
+                                        inFlight.get(query.getChannel());
+        Integer identifier = Integer.valueOf(query.getIdentifier());
+        if (queries.get(identifier) == query) {
+            queries.remove(identifier);
+        }
+    }
+
+    /**
+     * Tells a query's listener it failed, keeping the engine running if
+     * the listener throws.
+     *
+     * @param query the query
+     * @param cause why it failed
+     */
+    private void fail(DNSPendingQuery query, Exception cause) {
+        try {
+            query.fail(cause);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+    }
+
+    /**
+     * Passes an exception thrown by a listener to the engine thread's
+     * uncaught exception handler without stopping the engine.
+     *
+     * @param e the exception
+     */
+    private void report(RuntimeException e) {
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Closes the selector and channels and fails every query that's left.
+     *
+     * @param failure what stopped the engine, or null if it was closed
+     */
+    private void shutDown(IOException failure) {
+        synchronized (submitted) {
+            open = false;
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing more can be done with it
+        }
+        closeChannels();
+
+        IOException cause = failure;
+        if (cause == null) {
+            cause = new IOException("resolver engine closed");
+        }
+        takeSubmitted();
+        while (!deadlines.isEmpty()) {
+            fail(deadlines.poll(), cause);
+        }
+        backlog.clear();
+        for (int i = 0; i < inFlight.size(); i++) {
+            inFlight.get(i).clear();
+        }
+    }
+
+    /**
+     * Closes every channel that has been opened.
+     */
+    private void closeChannels() {
+        for (int i = 0; i < transports.length; i++) {
+            if (transports[i] == null) {
+                continue;
+            }
+            try {
+                transports[i].close();
+            } catch (IOException e) {
+                // nothing more can be done with it
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Told the outcome of a query sent through a DNSResolverEngine.  Exactly
+ * one of the methods is called for each query, unless it's cancelled
+ * first, in which case neither is.
+ *
+ * Both are called on the engine's thread, so they should hand any real
+ * work off rather than doing it there; every other query waits while
+ * they run.
+ *
+ * @author Chris Blades
+ * @version 19/4/2010
+ */
+public interface DNSResponseListener {
+    /**
+     * Called with the response to a query.
+     *
+     * @param query the query that was answered
+     * @param response the response, fully parsed
+     */
+    public void onResponse(DNSPendingQuery query, DNSPacket response);
+
+    /**
+     * Called when a query can't be answered: it timed out, couldn't be
+     * sent or the engine was closed.  A timeout is reported as a
+     * java.net.SocketTimeoutException.
+     *
+     * @param query the query that failed
+     * @param cause why it failed
+     */
+    public void onFailure(DNSPendingQuery query, Exception cause);
+}
@@ -0,0 +1,16 @@
+/**
+ * The sections of a DNS message that hold resource records.
+ *
+ * @author Chris Blades
+ * @version 10/4/2010
+ */
+public enum DNSSection {
+    /** records answering the question */
+    ANSWER,
+
+    /** records naming the servers authoritative for the question */
+    AUTHORITY,
+
+    /** records that may help with the other sections, such as glue */
+    ADDITIONAL
+}
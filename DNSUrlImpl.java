@@ -1,13 +1,20 @@
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of DNSUrl.  Stores the url and when serializes
- * the url in DNS format.
+ * the url in DNS format.  The url is interned in DNSNamePool, so every
+ * DNSUrlImpl naming the same domain with the same spelling shares one
+ * DNSName and its encoded bytes.
  *
  * @author Chris Blades
  * @version 3/12/2010
  */
 public class DNSUrlImpl extends AbstractDNSObject implements DNSUrl {
-    /** The URL this DNSUrl is wrapping */
-    private String url;
+    /** The canonical name this DNSUrl is wrapping */
+    private DNSName name;
+
+    /** wether the name was decoded from a message rather than given */
+    private boolean decoded;
 
     /** Creates a new empty DNSUrl */
     public DNSUrlImpl() {
@@ -20,7 +27,7 @@ public class DNSUrlImpl extends AbstractDNSObject implements DNSUrl {
      * @param url the URL to wrap
      */
     public DNSUrlImpl(String url) {
-        this.url = url;
+        this.name = DNSNamePool.intern(url);
     }
 
     /**
@@ -29,8 +36,31 @@ public class DNSUrlImpl extends AbstractDNSObject implements DNSUrl {
      * @param url the url to change to
      */
     public void setUrl(String url) {
-        this.url = url;
-        changed = true;
+        this.name    = DNSNamePool.intern(url);
+        this.decoded = false;
+        markChanged();
+    }
+
+    /**
+     * Sets the url to a name decoded from a message.  Labels on the wire
+     * may hold any octet, so its characters up to 0xFF are written back
+     * as they were read rather than having to be ASCII.
+     *
+     * @param url the decoded name
+     */
+    void setDecodedUrl(String url) {
+        this.name    = DNSNamePool.intern(url);
+        this.decoded = true;
+        markChanged();
+    }
+
+    /**
+     * Returns the name in DNS format.
+     *
+     * @return the encoded name, shared with every url naming this domain
+     */
+    private byte[] wire() {
+        return decoded ? name.getRawWire() : name.getWire();
     }
 
     /**
@@ -39,7 +69,14 @@ public class DNSUrlImpl extends AbstractDNSObject implements DNSUrl {
      * @return the URL this DNSUrl is wrapping.
      */
     public String getData() {
-        return this.url;
+        return name.getUrl();
+    }
+
+    /**
+     * Sets this url back to the root.
+     */
+    public void reset() {
+        setUrl("");
     }
 
     /**
@@ -48,51 +85,55 @@ public class DNSUrlImpl extends AbstractDNSObject implements DNSUrl {
      * @return this DNSUrl as a byte array
      */
     public byte[] serialize() {
-        generateTransient();
+        generateSerialized();
         return this.serialized;
     }
 
+    /**
+     * Writes this url in DNS format into the given buffer, straight from
+     * the encoded bytes shared by every url naming this domain.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(wire());
+    }
+
     /**
      * Returns a mapping of the state values of this DNSUrl
      * 
      * @return the state values of this DNSUrl
      */
     public Map stateValues() {
-        generateTransient();
+        generateValues();
         return this.values;
     }
 
     /**
-     * Re-generates serialized and values when state-changes have occured.
+     * Re-generates serialized if this url has changed since it was last
+     * serialized.
      */
-    protected void generateTransient() {
-        if (changed) {
+    protected void generateSerialized() {
+        if (serializedChanged) {
             //
-            // contruct serialized
+            // contruct serialized, shared with every url naming this domain
             //
+            serialized = wire();
 
-            // parse url and translate into DNS format
-            serialized = new byte[url.length() + 2];
-            String[] parts = url.split("\\.");
-            
-            int index = 0;
-            for (int i = 0; i < parts.length; i++) {
-                serialized[index] = (byte)parts[i].length();
-                index++;
-                char[] temp = parts[i].toCharArray();
-                for (int j = 0; j < parts[i].length(); j++) {
-                    serialized[index] = (byte)temp[j];
-                    index++;
-                }
-            }
+            serializedChanged = false;
+        }
+    }
 
-            //
-            // construct values
-            //
-            values.clear();
-            values.put("URL", this.url);
+    /**
+     * Re-generates values if this url has changed since they were last
+     * generated.
+     */
+    protected void generateValues() {
+        if (valuesChanged) {
+            resetValues();
+            values.put("URL", name.getUrl());
 
-            changed = false;
+            valuesChanged = false;
         }
     }
 }
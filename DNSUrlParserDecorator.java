@@ -1,3 +1,5 @@
+import java.nio.ByteBuffer;
+
 /**
  * A decorator for DNSUrl that parses a byte buffer to create a
  * DNSUrl.
@@ -6,11 +8,20 @@
  * @version 20/3/10
  */
 public class DNSUrlParserDecorator implements DNSUrl {
+    /** longest a name can be on the wire */
+    public static final int MAX_NAME_LENGTH = 255;
+
+    /** most compression pointers followed while reading one name */
+    public static final int MAX_POINTERS = 32;
+
     /** The DNSUrl object this object wraps */
-    private DNSUrl target;
+    private DNSUrlImpl target;
 
     /** byte buffer to parse and pass to other objects */
-    private IndexedArrayList<Byte> bytes;
+    private ByteCursor bytes;
+
+    /** names already decoded from the same message */
+    private DNSNameTable names;
 
     /**
      * Creates a new DNSUrlParserDecorator with the given byte
@@ -18,8 +29,21 @@ public class DNSUrlParserDecorator implements DNSUrl {
      *
      * @param bytes the byte buffer to parse.
      */
-    public DNSUrlParserDecorator(IndexedArrayList<Byte> bytes) {
-        this.bytes = bytes;
+    public DNSUrlParserDecorator(ByteCursor bytes) {
+        this(bytes, new DNSNameTable());
+    }
+
+    /**
+     * Creates a new DNSUrlParserDecorator with the given byte
+     * buffer that shares already decoded names with the rest of the
+     * message.
+     *
+     * @param bytes the byte buffer to parse.
+     * @param names names already decoded from the same message
+     */
+    public DNSUrlParserDecorator(ByteCursor bytes, DNSNameTable names) {
+        this.bytes  = bytes;
+        this.names  = names;
         this.target = new DNSUrlImpl();
     }
 
@@ -29,52 +53,173 @@ public class DNSUrlParserDecorator implements DNSUrl {
      *
      */
     public void parse() {
-        target.setUrl(interpretUrl());
+        target.setDecodedUrl(interpretUrl());
     }
 
+    /**
+     * Moves the byte buffer past the name at its current position without
+     * decoding it.  Pointers aren't followed, a pointer always ends a name.
+     *
+     * @param bytes the byte buffer, positioned at the start of a name
+     */
+    public static void skipUrl(ByteCursor bytes) {
+        int length  = 1;
+        int current = bytes.readU8();
+        while (current != 0x00) {
+            if ((current & 0xC0) == 0xC0) {
+                bytes.skip(1);
+                return;
+            }
+            checkLabel(current, length, bytes.getPosition() - 1);
+            length += current + 1;
+            bytes.skip(current);
+            current = bytes.readU8();
+        }
+    }
+
+    /**
+     * Makes sure a label length byte describes a normal label and that
+     * adding it won't make the name too long.
+     *
+     * @param current the label length byte
+     * @param length the length of the name so far, including the final 0
+     * @param position where the label length byte was read
+     */
+    private static void checkLabel(int current, int length, int position) {
+        if ((current & 0xC0) != 0) {
+            throw new DNSParseException("unsupported label type "
+                                        + (current >>> 6), position);
+        }
+        if (length + current + 1 > MAX_NAME_LENGTH) {
+            throw new DNSParseException("name longer than "
+                                        + MAX_NAME_LENGTH + " bytes", position);
+        }
+    }
+
+    /**
+     * Reads a name from the current position of the byte buffer, following
+     * compression pointers, and leaves the buffer positioned after the
+     * name.  Every label's suffix is recorded in the name table so later
+     * pointers to it don't have to be decoded again.
+     *
+     * Pointers are followed iteratively.  Each one must point before the
+     * start of the labels it ends, so they can't loop, and no more than
+     * MAX_POINTERS are followed for one name.
+     *
+     * @return the name in dotted notation
+     */
     public String interpretUrl() {
-        byte current = bytes.getNext();
+        return readUrl(bytes, names);
+    }
+
+    /**
+     * Reads a name from the current position of the given byte buffer, the
+     * same way interpretUrl() does, without needing a decorator.
+     *
+     * @param bytes the byte buffer, positioned at the start of a name
+     * @param names names already decoded from the same message
+     * @return the name in dotted notation
+     */
+    public static String readUrl(ByteCursor bytes, DNSNameTable names) {
         StringBuilder builder = new StringBuilder();
-        // TODO
-        // could be replaced with an iterator if iterator started
-        // from the current position of bytes
-        //
-        for (int i = bytes.getPosition(); i < bytes.size() && current != 0x00; 
-                                                     i = bytes.getPosition()) {
+        // where each label starts, in the buffer and in builder
+        int[] labelPositions = new int[8];
+        int[] labelStarts    = new int[8];
+        int   labels         = 0;
+        String pointedTo     = null;
+
+        // wire length of the name so far, including the final 0
+        int length   = 1;
+        int pointers = 0;
+        // where to leave the buffer once the first pointer is followed
+        int resume   = -1;
+        // start of the labels currently being read
+        int runStart = bytes.getPosition();
+
+        int position = runStart;
+        int current  = bytes.readU8();
+        while (current != 0x00) {
             // detect pointers
-            if ((int)(current & 0xFF) >= 0x000000C0) {
+            if ((current & 0xC0) == 0xC0) {
                 // get location pointer points to
-                int pointerIndex = (int)(bytes.getNext() & 0xFF);
-                // save the current buffer
-                int oldIndex = bytes.getPosition();
-                // set index at pointer location
-                bytes.setPosition(pointerIndex);
-                String tmp = interpretUrl();
-                // interpret pointed to url
-                builder.append(tmp);
-
-                // restore bytes
-                bytes.setPosition(oldIndex);
-                break;
-            // else read from current index
-            } else {
-                // else translate part
-                char[] part = new char[current & 0xFF];
-                for (int j = 0; j < part.length; j++) {
-                    part[j] = (char)(bytes.getNext() & 0xFF);
+                int pointerIndex = ((current & 0x3F) << 8) | bytes.readU8();
+                if (pointerIndex >= runStart) {
+                    throw new DNSParseException("pointer to " + pointerIndex
+                                    + " doesn't point backwards", position);
+                }
+                if (++pointers > MAX_POINTERS) {
+                    throw new DNSParseException("more than " + MAX_POINTERS
+                                    + " pointers in one name", position);
+                }
+                if (resume < 0) {
+                    resume = bytes.getPosition();
                 }
-                builder.append(part);
-                builder.append(".");
-                current = bytes.getNext();
+                pointedTo = names.get(pointerIndex);
+                if (pointedTo != null) {
+                    if (pointedTo.length() > 0) {
+                        length += pointedTo.length() + 1;
+                    }
+                    if (length > MAX_NAME_LENGTH) {
+                        throw new DNSParseException("name longer than "
+                                    + MAX_NAME_LENGTH + " bytes", position);
+                    }
+                    break;
+                }
+                // carry on reading from where the pointer points
+                bytes.setPosition(pointerIndex);
+                runStart = pointerIndex;
+                position = pointerIndex;
+                current  = bytes.readU8();
+                continue;
+            }
+            checkLabel(current, length, position);
+            length += current + 1;
+
+            // else translate part
+            if (labels == labelPositions.length) {
+                labelPositions = java.util.Arrays.copyOf(labelPositions,
+                                                         labels * 2);
+                labelStarts    = java.util.Arrays.copyOf(labelStarts,
+                                                         labels * 2);
+            }
+            labelPositions[labels] = position;
+            labelStarts[labels]    = builder.length();
+            labels++;
+            for (int j = 0; j < current; j++) {
+                builder.append((char)bytes.readU8());
+            }
+            builder.append('.');
+            position = bytes.getPosition();
+            current  = bytes.readU8();
+        }
+        if (resume >= 0) {
+            bytes.setPosition(resume);
+        }
+
+        String url;
+        if (labels == 0) {
+            // nothing but a pointer (or the root), share the decoded name
+            url = pointedTo != null ? pointedTo : "";
+            if (pointedTo == null) {
+                names.put(position, url);
             }
-            
-        }      
-        if (builder.length() > 0) {
-            if (builder.charAt(builder.length() - 1) == '.') {
-                builder.deleteCharAt(builder.length() - 1);
+            return url;
+        }
+        if (pointedTo != null && pointedTo.length() > 0) {
+            builder.append(pointedTo);
+        } else {
+            builder.deleteCharAt(builder.length() - 1);
+        }
+        url = builder.toString();
+
+        // remember the suffix starting at every label
+        names.put(labelPositions[0], url);
+        for (int i = 1; i < labels; i++) {
+            if (names.get(labelPositions[i]) == null) {
+                names.put(labelPositions[i], url.substring(labelStarts[i]));
             }
         }
-        return builder.toString();
+        return url;
     }
 
     //
@@ -108,6 +253,15 @@ public class DNSUrlParserDecorator implements DNSUrl {
         return target.getLength();
     }
 
+    /**
+     * Returns the modification count of the parsed DNSUrl object.
+     *
+     * @return the modification count of this DNSUrl
+     */
+    public int getModificationCount() {
+        return target.getModificationCount();
+    }
+
     /**
      * returns the serialized version of the parsed DNSUrl object.
      * can't just return the byte buffer because we don't know what else is in
@@ -119,6 +273,15 @@ public class DNSUrlParserDecorator implements DNSUrl {
         return target.serialize();
     }
 
+    /**
+     * Writes the serialized version of the parsed DNSUrl into the given buffer.
+     *
+     * @param buffer the buffer to write into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        target.writeTo(buffer);
+    }
+
     /** 
      * Returns a mapping of the state values of the parsed DNSUrl object.
      *
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests DNSResolverEngine against a stub server on the loopback interface
+ * that answers every query by sending it back as a response, except for
+ * names starting with "drop", which it ignores.  Sends 3000 queries at
+ * once and checks each response reaches the query it answers, then checks
+ * an unanswered query times out.  Prints ok or FAILED for each.
+ *
+ * @author Chris Blades
+ * @version 24/4/2010
+ */
+public class EngineTest {
+    /** number of queries sent at once */
+    private static final int QUERIES = 3000;
+
+    public static void main(String[] args) throws Exception {
+        DatagramChannel server = DatagramChannel.open();
+        server.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 22);
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        startStub(server);
+
+        DNSResolverEngine engine =
+            new DNSResolverEngine(server.getLocalAddress(), 3, 5000);
+        try {
+            testMany(engine);
+            testTimeout(engine);
+        } finally {
+            engine.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Sends QUERIES queries without waiting and checks every one is
+     * answered with the response to its own question.
+     *
+     * @param engine the engine to send through
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void testMany(DNSResolverEngine engine)
+            throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(QUERIES);
+        final AtomicInteger  matched  = new AtomicInteger();
+        DNSResponseListener listener = new DNSResponseListener() {
+            public void onResponse(DNSPendingQuery query,
+                                   DNSPacket response) {
+                String name = response.getQuestions().get(0).getName()
+                                      .getData();
+                if (name.equals(query.getName())
+                        && response.getHeader().getIdentifier()
+                           == query.getIdentifier()) {
+                    matched.incrementAndGet();
+                }
+                finished.countDown();
+            }
+
+            public void onFailure(DNSPendingQuery query, Exception cause) {
+                System.out.println(query.getName() + ": " + cause);
+                finished.countDown();
+            }
+        };
+
+        for (int i = 0; i < QUERIES; i++) {
+            engine.query("host" + i + ".example.com", DNSRecordTypeEnum.A,
+                         DNSRecordClassEnum.IN, true, listener);
+        }
+        boolean done = finished.await(30, TimeUnit.SECONDS);
+        System.out.println(matched.get() + " of " + QUERIES + " matched");
+        System.out.println(done && matched.get() == QUERIES
+                           ? "ok" : "FAILED");
+    }
+
+    /**
+     * Sends a query the stub ignores and checks it fails with a timeout.
+     *
+     * @param engine the engine to send through
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void testTimeout(DNSResolverEngine engine)
+            throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final Exception[]    failure  = new Exception[1];
+        DNSResponseListener listener = new DNSResponseListener() {
+            public void onResponse(DNSPendingQuery query,
+                                   DNSPacket response) {
+                finished.countDown();
+            }
+
+            public void onFailure(DNSPendingQuery query, Exception cause) {
+                failure[0] = cause;
+                finished.countDown();
+            }
+        };
+
+        engine.query("drop.example.com", DNSRecordTypeEnum.A,
+                     DNSRecordClassEnum.IN, true, 200, listener);
+        boolean done = finished.await(5, TimeUnit.SECONDS);
+        System.out.println("unanswered query: " + failure[0]);
+        System.out.println(done && failure[0] instanceof SocketTimeoutException
+                           ? "ok" : "FAILED");
+    }
+
+    /**
+     * Starts a daemon thread answering every query received on the given
+     * channel by sending it back with the response flag set, except for
+     * names starting with "drop".
+     *
+     * @param server the stub server's channel
+     */
+    private static void startStub(final DatagramChannel server) {
+        Thread stub = new Thread("stub server") {
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocate(512);
+                try {
+                    while (true) {
+                        buffer.clear();
+                        SocketAddress from = server.receive(buffer);
+                        buffer.flip();
+                        DNSPacketView query = new DNSPacketView(
+                                new ByteCursor(buffer.duplicate()));
+                        String name = query.getQuestions().get(0).getName()
+                                           .getData();
+                        if (name.startsWith("drop")) {
+                            continue;
+                        }
+                        // QR is the top bit of the third byte
+                        buffer.put(2, (byte)(buffer.get(2) | 0x80));
+                        server.send(buffer, from);
+                    }
+                } catch (IOException e) {
+                    // closed, the test is over
+                }
+            }
+        };
+        stub.setDaemon(true);
+        stub.start();
+    }
+}
@@ -9,14 +9,7 @@ public class IPTest {
     public static void main(String[] args) {
         DNSIP ip = new DNSIPImpl("11.22.33.44");
 
-        byte[] bytes = ip.serialize();
-        Byte[] Bytes = new Byte[bytes.length];
-
-        for (int i = 0; i < bytes.length; i++) {
-            Bytes[i] = bytes[i];
-        }
-
-        IndexedArrayList<Byte> list = new IndexedArrayList<Byte>(Bytes);
+        ByteCursor list = new ByteCursor(ip.serialize());
 
         DNSIPParserDecorator dec =
             new DNSIPParserDecorator(list);
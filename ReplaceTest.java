@@ -0,0 +1,36 @@
+/**
+ * Tests that a serialized DNSPacketImpl is brought up to date when a part
+ * of one of its records is replaced by a new object that has been changed
+ * fewer times than the old one, by swapping an answer's name after the
+ * packet has been serialized and parsing the result.
+ *
+ * @author Chris Blades
+ * @version 24/4/2010
+ */
+public class ReplaceTest {
+    public static void main(String[] args) {
+        DNSUrlImpl name = new DNSUrlImpl("aaa.com");
+        name.setUrl("aaa.com");
+
+        DNSAnswer answer = new DNSAnswerImpl(name, new DNSIPImpl("1.2.3.4"));
+        answer.setType(DNSRecordTypeEnum.A);
+        answer.setClass(DNSRecordClassEnum.IN);
+        answer.setTTL(60);
+
+        DNSHeader header = new DNSHeaderImpl();
+        header.setNumAnswers(1);
+        DNSPacket packet = new DNSPacketImpl();
+        packet.setHeader(header);
+        packet.addAnswer(answer);
+        packet.serialize();
+
+        answer.setName(new DNSUrlImpl("bbb.com"));
+
+        ByteCursor list = new ByteCursor(packet.serialize());
+        DNSPacketParserDecorator dec = new DNSPacketParserDecorator(list);
+        dec.parse();
+        String parsed = dec.getAnswers().get(0).getName().getData();
+        System.out.println(parsed);
+        System.out.println(parsed.equals("bbb.com") ? "ok" : "FAILED");
+    }
+}
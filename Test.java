@@ -44,14 +44,10 @@ public class Test {
             DatagramPacket get = new DatagramPacket(new byte[512], 512);
             sock.receive(get);
             
-            byte[] packetbytes = get.getData();
-            Byte[] packetBytes = new Byte[packetbytes.length];
-            for (int i = 0; i < packetbytes.length; i++) {
-                packetBytes[i] = packetbytes[i];
-            }
             DNSPacketParserDecorator dec = 
                                 new DNSPacketParserDecorator(
-                                new IndexedArrayList<Byte>(packetBytes));
+                                new ByteCursor(get.getData(), 0,
+                                               get.getLength()));
             
             dec.parse();
             
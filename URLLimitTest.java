@@ -0,0 +1,101 @@
+/**
+ * Tests that DNSUrlParserDecorator refuses malformed names: pointers that
+ * point forwards or at themselves, chains of more than MAX_POINTERS
+ * pointers, names longer than MAX_NAME_LENGTH bytes and names cut off by
+ * the end of the message.  Prints ok or FAILED for each.
+ *
+ * @author Chris Blades
+ * @version 24/4/2010
+ */
+public class URLLimitTest {
+    public static void main(String[] args) {
+        // pointer to the byte after it
+        expectFailure("forward pointer", new byte[]
+                {(byte)0xC0, (byte)0x02, (byte)0x00}, 0);
+
+        // pointer to itself
+        expectFailure("self pointer", new byte[]
+                {(byte)0x00, (byte)0xC0, (byte)0x01}, 1);
+
+        // root name followed by a chain of pointers, each pointing at
+        // the one before it
+        byte[] chain = new byte[1 + 2 * (DNSUrlParserDecorator.MAX_POINTERS
+                                         + 1)];
+        for (int i = 1; i < chain.length; i += 2) {
+            chain[i]     = (byte)0xC0;
+            chain[i + 1] = (byte)(i == 1 ? 0 : i - 2);
+        }
+        expectSuccess("longest pointer chain", chain, chain.length - 4);
+        expectFailure("pointer chain too long", chain, chain.length - 2);
+
+        // four labels of 63 bytes are 257 bytes with their lengths
+        byte[] longName = new byte[4 * 64 + 1];
+        for (int i = 0; i < 4; i++) {
+            longName[i * 64] = (byte)63;
+            for (int j = 1; j < 64; j++) {
+                longName[i * 64 + j] = (byte)'a';
+            }
+        }
+        expectFailure("name over 255 bytes", longName, 0);
+
+        // label runs past the end of the message
+        expectFailure("truncated label", new byte[]
+                {(byte)0x03, (byte)0x61, (byte)0x62}, 0);
+
+        // pointer missing its second byte
+        expectFailure("truncated pointer", new byte[]
+                {(byte)0x00, (byte)0xC0}, 1);
+
+        // no terminating 0
+        expectFailure("missing root", new byte[]
+                {(byte)0x01, (byte)0x61}, 0);
+    }
+
+    /**
+     * Parses a name that should be refused, printing the outcome.
+     *
+     * @param description what's being tested
+     * @param bytes the message holding the name
+     * @param start index of the name in bytes
+     */
+    private static void expectFailure(String description, byte[] bytes,
+                                      int start) {
+        try {
+            parse(bytes, start);
+            System.out.println("FAILED " + description);
+        } catch (DNSParseException e) {
+            System.out.println("ok " + description + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a name that should be accepted, printing the outcome.
+     *
+     * @param description what's being tested
+     * @param bytes the message holding the name
+     * @param start index of the name in bytes
+     */
+    private static void expectSuccess(String description, byte[] bytes,
+                                      int start) {
+        try {
+            parse(bytes, start);
+            System.out.println("ok " + description);
+        } catch (DNSParseException e) {
+            System.out.println("FAILED " + description + ": "
+                               + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the name at the given index of a message.
+     *
+     * @param bytes the message holding the name
+     * @param start index of the name in bytes
+     */
+    private static void parse(byte[] bytes, int start) {
+        ByteCursor list = new ByteCursor(bytes);
+        list.setPosition(start);
+        DNSUrlParserDecorator dec = new DNSUrlParserDecorator(list);
+        dec.parse();
+    }
+}
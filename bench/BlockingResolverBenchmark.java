@@ -0,0 +1,122 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark comparing 10,000 concurrent blocking lookups through
+ * DNSBlockingResolver on virtual threads with the same lookups on a pool
+ * of 200 platform threads.  Every lookup is answered by a LoopbackServer.
+ * Reports the average time per lookup.
+ *
+ * Built and run the same way as ParseBenchmark:
+ *
+ *     java -cp classes:jmh/* org.openjdk.jmh.Main BlockingResolverBenchmark
+ *
+ * Virtual threads need Java 21 or later.  On older JVMs "virtual" falls
+ * back to DNSBlockingResolver's platform threads, so compare the two only
+ * on a JVM where DNSBlockingResolver.hasVirtualThreads() is true.
+ *
+ * @author Chris Blades
+ * @version 21/4/2010
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingResolverBenchmark {
+    /** lookups started at once */
+    private static final int LOOKUPS = 10000;
+
+    /** size of the platform thread pool */
+    private static final int PLATFORM_THREADS = 200;
+
+    /** what the lookups run on, "virtual" or "platform" threads */
+    @Param({"virtual", "platform"})
+    public String threads;
+
+    /** answers every lookup */
+    private LoopbackServer      server;
+
+    /** does the lookups */
+    private DNSBlockingResolver resolver;
+
+    /** the names looked up */
+    private String[]            names;
+
+    /**
+     * Starts the server and the resolver.
+     *
+     * @throws Exception if either can't be started
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new LoopbackServer();
+        ExecutorService executor;
+        if (threads.equals("virtual")) {
+            executor = DNSBlockingResolver.newLookupExecutor();
+        } else {
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+        // no cache, every lookup has to go to the server
+        resolver = new DNSBlockingResolver(
+                        new DNSAsyncResolver(
+                            new DNSResolverEngine(server.getAddress()), null),
+                        executor);
+        names = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            names[i] = "host" + i + ".example.com";
+        }
+    }
+
+    /**
+     * Stops the resolver and the server.
+     *
+     * @throws Exception if the server can't be stopped
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        resolver.close();
+        server.close();
+    }
+
+    /**
+     * Starts every lookup at once, each blocking its own thread, then
+     * waits for them all.
+     *
+     * @return the number of answers received
+     * @throws Exception if a lookup fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int concurrentLookups() throws Exception {
+        Future<?>[] lookups = new Future<?>[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = resolver.submit(names[i], DNSRecordTypeEnum.A,
+                                         DNSRecordClassEnum.IN, true);
+        }
+        int answers = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            DNSPacket response = (DNSPacket)lookups[i].get();
+            answers += response.getAnswers().size();
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for building and serializing packets, run over a few
+ * packet shapes: a query with one question, a response with 20 answers
+ * and a referral with a large additional section.  Reports ns/op; run with
+ * -prof gc to also get the bytes allocated per op (gc.alloc.rate.norm).
+ *
+ * Built and run the same way as ParseBenchmark:
+ *
+ *     java -cp classes:jmh/* org.openjdk.jmh.Main BuildBenchmark -prof gc
+ *
+ * serialize() and getLength() set the packet's header again first, which
+ * marks the packet itself changed and makes every call re-generate all of
+ * it.  setTTLSerialize() only changes a record, so it measures writing
+ * that one record again into the cached bytes.
+ *
+ * @author Chris Blades
+ * @version 17/4/2010
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+    /** name asked about in every packet */
+    private static final String NAME = "www.example.com";
+
+    /** shape of the packet to build */
+    @Param({"query", "answers-20", "large-additional"})
+    public String shape;
+
+    /** factory every packet is built with */
+    private DNSFactory factory;
+
+    /** a packet of the chosen shape, built once */
+    private DNSPacket packet;
+
+    /** the last record in packet, null if it has none */
+    private DNSAnswer record;
+
+    /** answer added and removed again by addAnswerSerialize */
+    private DNSAnswer extra;
+
+    /** TTL given to record, changed on every call */
+    private int ttl;
+
+    /**
+     * Builds the packet the benchmarks work on.
+     */
+    @Setup
+    public void setup() {
+        factory = new DNSFactory();
+        packet  = build(factory, shape);
+        record  = lastRecord(packet);
+        extra   = address(NAME, 300, 0x0A000001);
+        ttl     = 0;
+    }
+
+    /**
+     * Builds a query with DNSFactory.getPacket(), as the resolver does
+     * before every send.
+     *
+     * @return the new packet
+     */
+    @Benchmark
+    public Object getPacket() {
+        return factory.getPacket(NAME, DNSRecordTypeEnum.A,
+                                 DNSRecordClassEnum.IN, true, 0x1234);
+    }
+
+    /**
+     * Builds a whole packet of the chosen shape and serializes it.
+     *
+     * @return the serialized packet
+     */
+    @Benchmark
+    public Object buildSerialize() {
+        return build(factory, shape).serialize();
+    }
+
+    /**
+     * Serializes the already built packet.
+     *
+     * @return the serialized packet
+     */
+    @Benchmark
+    public Object serialize() {
+        packet.setHeader(packet.getHeader());
+        return packet.serialize();
+    }
+
+    /**
+     * Works out the serialized length of the already built packet.
+     *
+     * @return the length
+     */
+    @Benchmark
+    public int getLength() {
+        packet.setHeader(packet.getHeader());
+        return packet.getLength();
+    }
+
+    /**
+     * Changes the TTL of the last record, or the identifier of a packet
+     * without records, then serializes the packet again.  Only the changed
+     * record or header is written again.
+     *
+     * @return the serialized packet
+     */
+    @Benchmark
+    public Object setTTLSerialize() {
+        ttl++;
+        if (record != null) {
+            record.setTTL(ttl);
+        } else {
+            packet.getHeader().setIdentifier(ttl & 0xFFFF);
+        }
+        return packet.serialize();
+    }
+
+    /**
+     * Adds an answer then serializes the packet again.  The answer is
+     * taken back out of the list afterwards so the packet doesn't grow,
+     * adding it again on the next call marks the packet changed.
+     *
+     * @return the serialized packet
+     */
+    @Benchmark
+    public Object addAnswerSerialize() {
+        packet.addAnswer(extra);
+        byte[] bytes = packet.serialize();
+        List<DNSAnswer> answers = packet.getAnswers();
+        answers.remove(answers.size() - 1);
+        return bytes;
+    }
+
+    /**
+     * Builds a packet of the given shape.
+     *
+     * @param factory the factory to build the question with
+     * @param shape one of the values of the shape parameter
+     * @return the new packet
+     */
+    private static DNSPacket build(DNSFactory factory, String shape) {
+        DNSPacket built = factory.getPacket(NAME, DNSRecordTypeEnum.A,
+                                            DNSRecordClassEnum.IN, true,
+                                            0x1234);
+        DNSHeader header = built.getHeader();
+
+        if (shape.equals("answers-20")) {
+            header.getFlags().setIsRequest(false);
+            header.setNumAnswers(20);
+            for (int i = 0; i < 20; i++) {
+                built.addAnswer(address(NAME, 300, 0x5DB8D800 + i));
+            }
+        } else if (shape.equals("large-additional")) {
+            // a referral: 13 servers, each with an address as glue
+            header.getFlags().setIsRequest(false);
+            header.setNumAuthorityAnswers(13);
+            header.setNumAdditionalAnswers(13);
+            for (int i = 0; i < 13; i++) {
+                String server = (char)('a' + i) + ".gtld-servers.net";
+                DNSAnswer ns = new DNSAnswerImpl(new DNSUrlImpl("com"),
+                                                 new DNSUrlImpl(server));
+                ns.setType(DNSRecordTypeEnum.NS);
+                ns.setClass(DNSRecordClassEnum.IN);
+                ns.setTTL(172800);
+                built.addAuthoritativeAnswer(ns);
+                built.addAdditionalAnswer(address(server, 172800,
+                                                  0xC005061E + i));
+            }
+        } else if (!shape.equals("query")) {
+            throw new IllegalArgumentException("unknown shape " + shape);
+        }
+        return built;
+    }
+
+    /**
+     * Returns a new A record.
+     *
+     * @param name the name the record is for
+     * @param ttl the TTL of the record
+     * @param ip the address in the record
+     * @return the new record
+     */
+    private static DNSAnswer address(String name, int ttl, int ip) {
+        DNSAnswer answer = new DNSAnswerImpl(new DNSUrlImpl(name),
+                                             new DNSIPImpl(ip));
+        answer.setType(DNSRecordTypeEnum.A);
+        answer.setClass(DNSRecordClassEnum.IN);
+        answer.setTTL(ttl);
+        return answer;
+    }
+
+    /**
+     * Returns the last record in a packet, looking through the additional,
+     * authority and answer sections in that order.
+     *
+     * @param packet the packet to look in
+     * @return the last record, or null if the packet has none
+     */
+    private static DNSAnswer lastRecord(DNSPacket packet) {
+        List<DNSAnswer> section = packet.getAdditionalAnswers();
+        if (section.isEmpty()) {
+            section = packet.getAuthoritativeAnswers();
+        }
+        if (section.isEmpty()) {
+            section = packet.getAnswers();
+        }
+        if (section.isEmpty()) {
+            return null;
+        }
+        return section.get(section.size() - 1);
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * A stand-in DNS server on the loopback interface for the resolver
+ * benchmarks, so they measure the resolver rather than the network.  It
+ * answers every query straight away with one A record for 127.0.0.1,
+ * pointing back at the question's name.
+ *
+ * @author Chris Blades
+ * @version 21/4/2010
+ */
+public class LoopbackServer {
+    /** the A record added to every response, its name points at 12 */
+    private static final byte[] ANSWER = {
+        (byte)0xC0, 0x0C, 0x00, 0x01, 0x00, 0x01, 0x00, 0x00, 0x01, 0x2C,
+        0x00, 0x04, 0x7F, 0x00, 0x00, 0x01
+    };
+
+    /** receive buffer asked for, big enough for a burst of queries */
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 22;
+
+    /** channel queries arrive on */
+    private DatagramChannel channel;
+
+    /** thread answering queries */
+    private Thread          thread;
+
+    /**
+     * Starts a new LoopbackServer on a free port.
+     *
+     * @throws IOException if the channel can't be opened
+     */
+    public LoopbackServer() throws IOException {
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                          Integer.valueOf(RECEIVE_BUFFER_SIZE));
+        channel.bind(new InetSocketAddress("127.0.0.1", 0));
+        thread = new Thread(new Runnable() {
+            public void run() {
+                serve();
+            }
+        }, "LoopbackServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the address queries should be sent to.
+     *
+     * @return the server's address
+     * @throws IOException if the channel has been closed
+     */
+    public SocketAddress getAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    /**
+     * Answers queries until the channel is closed.
+     */
+    private void serve() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+        try {
+            while (true) {
+                buffer.clear();
+                SocketAddress from = channel.receive(buffer);
+                if (buffer.position() < 12
+                        || buffer.remaining() < ANSWER.length) {
+                    continue;
+                }
+                // response with recursion available, one answer
+                buffer.put(2, (byte)(buffer.get(2) | 0x80));
+                buffer.put(3, (byte)0x80);
+                buffer.putShort(6, (short)1);
+                buffer.put(ANSWER);
+                buffer.flip();
+                channel.send(buffer, from);
+            }
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException if closing the channel fails
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
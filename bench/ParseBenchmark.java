@@ -0,0 +1,189 @@
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for every way of parsing a received datagram, run over
+ * each datagram in ParseCorpus.  Reports ns/op; run with -prof gc to also
+ * get the bytes allocated per op (gc.alloc.rate.norm).
+ *
+ * The benchmarks sit in the default package next to the classes they
+ * measure and aren't part of the normal build.  To run them, compile the
+ * sources from the top directory together with this directory, with
+ * jmh-core and jmh-generator-annprocess on the classpath, then run:
+ *
+ *     java -cp classes:jmh/* org.openjdk.jmh.Main ParseBenchmark -prof gc
+ *
+ * The "cut" datagram ends part way through a record, so every parse of it
+ * ends in a DNSParseException.  That's what it's there to measure.
+ *
+ * @author Chris Blades
+ * @version 12/4/2010
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    /** name of the datagram to parse */
+    @Param({"small-a", "cname-chain", "referral", "truncated", "cut",
+            "compressed"})
+    public String datagram;
+
+    /** the datagram to parse */
+    private byte[] bytes;
+
+    /** streaming reader, reused like a receive loop would */
+    private DNSMessageReader reader;
+
+    /** handler that keeps hold of everything the reader finds */
+    private SinkHandler handler;
+
+    /**
+     * Loads the datagram and sets up the reader.
+     */
+    @Setup
+    public void setup() {
+        bytes   = ParseCorpus.get(datagram);
+        reader  = new DNSMessageReader();
+        handler = new SinkHandler();
+    }
+
+    /**
+     * Parses the whole datagram into a DNSPacket.
+     *
+     * @return the parsed packet, or the exception the parse ended in
+     */
+    @Benchmark
+    public Object decoratorParse() {
+        try {
+            DNSPacketParserDecorator packet =
+                new DNSPacketParserDecorator(new ByteCursor(bytes));
+            packet.parse();
+            return packet;
+        } catch (DNSParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Parses the whole datagram then builds its state values, which is
+     * what the resolver window does with every response.
+     *
+     * @return the state values, or the exception the parse ended in
+     */
+    @Benchmark
+    public Object decoratorStateValues() {
+        try {
+            DNSPacketParserDecorator packet =
+                new DNSPacketParserDecorator(new ByteCursor(bytes));
+            packet.parse();
+            return packet.stateValues();
+        } catch (DNSParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Parses the datagram lazily and only reads the answer section.
+     *
+     * @return the answers, or the exception the parse ended in
+     */
+    @Benchmark
+    public Object lazyAnswers() {
+        try {
+            DNSPacketParserDecorator packet =
+                new DNSPacketParserDecorator(new ByteCursor(bytes), true);
+            packet.parse();
+            return packet.getAnswers();
+        } catch (DNSParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Reads the name, type and TTL of every answer through a DNSPacketView.
+     *
+     * @param hole receives each field read
+     * @return the view, or the exception the parse ended in
+     */
+    @Benchmark
+    public Object viewAnswers(Blackhole hole) {
+        try {
+            DNSPacketView packet = new DNSPacketView(bytes);
+            List<DNSAnswer> answers = packet.getAnswers();
+            for (int i = 0; i < answers.size(); i++) {
+                DNSAnswer answer = answers.get(i);
+                hole.consume(answer.getName().getData());
+                hole.consume(answer.getType());
+                hole.consume(answer.getTTL());
+            }
+            return packet;
+        } catch (DNSParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Walks the datagram with a reused DNSMessageReader.
+     *
+     * @param hole receives what the handler kept hold of
+     * @return the exception the read ended in, if any
+     */
+    @Benchmark
+    public Object streamingRead(Blackhole hole) {
+        try {
+            reader.read(bytes, handler);
+            hole.consume(handler.sum);
+            hole.consume(handler.name);
+            return null;
+        } catch (DNSParseException e) {
+            return e;
+        }
+    }
+
+    /**
+     * A DNSMessageHandler that adds up the numbers and keeps the last name
+     * it's given so none of the reader's work can be optimised away.
+     */
+    private static class SinkHandler implements DNSMessageHandler {
+        /** sum of every number handed to the handler */
+        private int    sum;
+
+        /** the last name handed to the handler */
+        private String name;
+
+        public void onHeader(DNSHeader header) {
+            sum += header.getIdentifier();
+        }
+
+        public void onQuestion(String name, int type, int recordClass) {
+            this.name = name;
+            sum += type;
+        }
+
+        public void onRecord(DNSSection section, String name, int type,
+                             int recordClass, int ttl, ByteCursor message,
+                             int dataOffset, int dataLength) {
+            this.name = name;
+            sum += type + ttl + dataOffset;
+        }
+
+        public void onEnd() {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The datagrams the parse benchmarks run against, kept as hex so they can
+ * be checked in next to the benchmarks.  They were put together by hand to
+ * look like the responses a resolver really sees: the same counts, names,
+ * TTLs and compression a server would use.
+ *
+ * @author Chris Blades
+ * @version 12/4/2010
+ */
+public class ParseCorpus {
+    /** names of every datagram in the corpus */
+    public static final String[] NAMES = {
+        "small-a", "cname-chain", "referral", "truncated", "cut", "compressed"
+    };
+
+    /** www.example.com A, one A answer (49 bytes) */
+    private static final String SMALL_A =
+        "1a2b8180000100010000000003777777076578616d706c6503636f6d00000100"
+      + "01c00c000100010000012c00045db8d822";
+
+    /** www.example.net A, two CNAMEs then two A answers (135 bytes) */
+    private static final String CNAME_CHAIN =
+        "3c4d8180000100040000000003777777076578616d706c65036e657400000100"
+      + "01c00c0005000100000e10002103777777076578616d706c65036e6574036364"
+      + "6e076578616d706c65036f726700c02d000500010000012c000d056531323334"
+      + "0465646765c03dc05a00010001000000140004cb00710ac05a00010001000000"
+      + "140004cb00710b";
+
+    /** root referral for com, 13 NS and 13 A glue records (465 bytes) */
+    private static final String REFERRAL =
+        "5e6f800000010000000d000d03777777076578616d706c6503636f6d00000100"
+      + "01c018000200010002a300001401610c67746c642d73657276657273036e6574"
+      + "00c018000200010002a30000040162c02fc018000200010002a30000040163c0"
+      + "2fc018000200010002a30000040164c02fc018000200010002a30000040165c0"
+      + "2fc018000200010002a30000040166c02fc018000200010002a30000040167c0"
+      + "2fc018000200010002a30000040168c02fc018000200010002a30000040169c0"
+      + "2fc018000200010002a3000004016ac02fc018000200010002a3000004016bc0"
+      + "2fc018000200010002a3000004016cc02fc018000200010002a3000004016dc0"
+      + "2fc02d000100010002a3000004c005001ec04d000100010002a3000004c00c25"
+      + "1ec05d000100010002a3000004c0134a1ec06d000100010002a3000004c01a6f"
+      + "1ec07d000100010002a3000004c021941ec08d000100010002a3000004c028b9"
+      + "1ec09d000100010002a3000004c02fde1ec0ad000100010002a3000004c03609"
+      + "1ec0bd000100010002a3000004c03d2e1ec0cd000100010002a3000004c04453"
+      + "1ec0dd000100010002a3000004c04b781ec0ed000100010002a3000004c0529d"
+      + "1ec0fd000100010002a3000004c059c21e";
+
+    /** big.example.com TXT with the TC bit set and no records (33 bytes) */
+    private static final String TRUNCATED =
+        "70818380000100000000000003626967076578616d706c6503636f6d00001000"
+      + "01";
+
+    /** four A answers cut off part way through the third (73 bytes) */
+    private static final String CUT =
+        "92a38180000100040000000003777777076578616d706c6503636f6d00000100"
+      + "01c00c000100010000003c00040a000001c00c000100010000003c00040a0000"
+      + "02c00c000100010000";
+
+    /** example.org NS, 8 NS and 8 A glue, all names compressed (305 bytes) */
+    private static final String COMPRESSED =
+        "b4c585800001000800000008076578616d706c65036f72670000020001c00c00"
+      + "02000100015180000a036e733103646e73c00cc00c0002000100015180000603"
+      + "6e7332c02dc00c00020001000151800006036e7333c02dc00c00020001000151"
+      + "800006036e7334c02dc00c00020001000151800006036e7335c02dc00c000200"
+      + "01000151800006036e7336c02dc00c00020001000151800006036e7337c02dc0"
+      + "0c00020001000151800006036e7338c02dc02900010001000151800004c63364"
+      + "01c03f00010001000151800004c6336402c05100010001000151800004c63364"
+      + "03c06300010001000151800004c6336404c07500010001000151800004c63364"
+      + "05c08700010001000151800004c6336406c09900010001000151800004c63364"
+      + "07c0ab00010001000151800004c6336408";
+
+    /**
+     * Returns a copy of the named datagram.
+     *
+     * @param name one of NAMES
+     * @return the datagram
+     */
+    public static byte[] get(String name) {
+        return decode(hex(name));
+    }
+
+    /**
+     * Returns the hex for the named datagram.
+     *
+     * @param name one of NAMES
+     * @return the datagram as hex
+     */
+    private static String hex(String name) {
+        if (name.equals("small-a")) {
+            return SMALL_A;
+        }
+        if (name.equals("cname-chain")) {
+            return CNAME_CHAIN;
+        }
+        if (name.equals("referral")) {
+            return REFERRAL;
+        }
+        if (name.equals("truncated")) {
+            return TRUNCATED;
+        }
+        if (name.equals("cut")) {
+            return CUT;
+        }
+        if (name.equals("compressed")) {
+            return COMPRESSED;
+        }
+        throw new IllegalArgumentException("no datagram called " + name);
+    }
+
+    /**
+     * Turns a string of hex digits into bytes.
+     *
+     * @param hex two hex digits per byte
+     * @return the bytes
+     */
+    private static byte[] decode(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hex.substring(i * 2, i * 2 + 2),
+                                              16);
+        }
+        return bytes;
+    }
+}